@@ -0,0 +1,120 @@
+package com.example.kafka;
+
+import com.example.kafka.service.DedupStore;
+import com.example.kafka.service.LatencyHistogram;
+import com.example.kafka.service.MappedFileDedupStore;
+import com.example.kafka.service.RedisService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 基准测试：本地内存映射文件去重存储 vs Redis
+ *
+ * 每个线程循环执行一次完整的去重流程：reserveUuid（发送前预占）+ saveUuid（发送成功后确认）+ isUuidExists，
+ * 分别统计两种后端的吞吐量与单次流程延迟分位。
+ * 前置条件：Redis部分使用 application.properties 中的配置，Redis不可用时只输出本地存储的结果。
+ * 内存映射存储使用临时目录，测试结束后删除。
+ */
+public class DedupStoreBenchmark {
+    private static final Logger logger = LoggerFactory.getLogger(DedupStoreBenchmark.class);
+
+    private static final int THREAD_COUNT = 8;
+    private static final int OPERATIONS_PER_THREAD = 50000;
+    private static final int WARMUP_OPERATIONS = 5000;
+
+    public static void main(String[] args) throws Exception {
+        logger.info("========================================");
+        logger.info("基准测试：内存映射文件去重存储 vs Redis");
+        logger.info("========================================");
+        logger.info("  - 线程数: {}", THREAD_COUNT);
+        logger.info("  - 每线程去重流程数: {}", OPERATIONS_PER_THREAD);
+        logger.info("");
+
+        File directory = Files.createTempDirectory("dedup-benchmark").toFile();
+        MappedFileDedupStore mappedStore = new MappedFileDedupStore(directory, 3600, 1 << 22, 604800, 30, 1000);
+        try {
+            run("mmap", mappedStore);
+        } finally {
+            mappedStore.close();
+            File[] files = directory.listFiles();
+            if (files != null) {
+                for (File file : files) {
+                    file.delete();
+                }
+            }
+            directory.delete();
+        }
+
+        RedisService redisService;
+        try {
+            redisService = new RedisService();
+            redisService.isUuidExists(UUID.randomUUID().toString());
+        } catch (Exception e) {
+            logger.warn("⚠️  Redis不可用，跳过Redis部分: {}", e.getMessage());
+            return;
+        }
+        try {
+            run("redis", redisService);
+        } finally {
+            redisService.close();
+        }
+    }
+
+    private static void run(String name, DedupStore store) throws InterruptedException {
+        // 预热：JIT编译、建立连接、映射页面
+        for (int i = 0; i < WARMUP_OPERATIONS; i++) {
+            dedup(store, UUID.randomUUID().toString());
+        }
+
+        LatencyHistogram histogram = new LatencyHistogram();
+        AtomicLong failureCount = new AtomicLong();
+        ExecutorService executor = Executors.newFixedThreadPool(THREAD_COUNT);
+        CountDownLatch done = new CountDownLatch(THREAD_COUNT);
+        long start = System.nanoTime();
+        for (int t = 0; t < THREAD_COUNT; t++) {
+            executor.submit(() -> {
+                try {
+                    for (int i = 0; i < OPERATIONS_PER_THREAD; i++) {
+                        String uuid = UUID.randomUUID().toString();
+                        long operationStart = System.nanoTime();
+                        try {
+                            dedup(store, uuid);
+                            histogram.record(System.nanoTime() - operationStart);
+                        } catch (Exception e) {
+                            failureCount.incrementAndGet();
+                        }
+                    }
+                } finally {
+                    done.countDown();
+                }
+            });
+        }
+        done.await();
+        long elapsedNanos = System.nanoTime() - start;
+        executor.shutdown();
+        executor.awaitTermination(10, TimeUnit.SECONDS);
+
+        long total = (long) THREAD_COUNT * OPERATIONS_PER_THREAD;
+        logger.info("[{}] 完成 {} 次去重流程，失败 {}，耗时 {} ms，吞吐量 {} 次/秒",
+            name, total, failureCount.get(), TimeUnit.NANOSECONDS.toMillis(elapsedNanos),
+            String.format("%.0f", total * 1e9 / elapsedNanos));
+        logger.info("[{}] 单次流程延迟: {}", name, histogram);
+        logger.info("[{}] 存储状态: {}", name, store);
+    }
+
+    private static void dedup(DedupStore store, String uuid) {
+        if (store.reserveUuid(uuid)) {
+            store.saveUuid(uuid);
+        }
+        store.isUuidExists(uuid);
+    }
+}
@@ -0,0 +1,159 @@
+package com.example.kafka;
+
+import com.example.kafka.service.DedupKeyCodec;
+import redis.clients.jedis.Jedis;
+import redis.clients.jedis.Pipeline;
+import redis.clients.jedis.ScanParams;
+import redis.clients.jedis.ScanResult;
+import redis.clients.jedis.commands.ProtocolCommand;
+import redis.clients.jedis.util.SafeEncoder;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+import java.util.UUID;
+
+/**
+ * 统计去重键在Redis中的实际内存占用（字节/键）
+ *
+ * 用法:
+ *   RedisKeyMemoryReport [sampleSize]            抽样现有键，分别统计 string / binary 编码
+ *   RedisKeyMemoryReport synthetic <count>       写入 count 个两种编码的临时键，按 used_memory 差值统计后删除
+ */
+public class RedisKeyMemoryReport {
+
+    private static final ProtocolCommand MEMORY = () -> SafeEncoder.encode("MEMORY");
+
+    public static void main(String[] args) throws IOException {
+        Properties props = new Properties();
+        try (InputStream input = RedisKeyMemoryReport.class.getClassLoader().getResourceAsStream("application.properties")) {
+            if (input == null) {
+                throw new RuntimeException("配置文件不存在");
+            }
+            props.load(input);
+        }
+
+        String host = props.getProperty("redis.host", "localhost");
+        int port = Integer.parseInt(props.getProperty("redis.port", "6379"));
+        int timeout = Integer.parseInt(props.getProperty("redis.timeout", "3000"));
+        String password = props.getProperty("redis.password");
+        int database = Integer.parseInt(props.getProperty("redis.database", "0"));
+
+        System.out.println("========== 去重键内存统计 ==========\n");
+        System.out.println("Redis: " + host + ":" + port + ", db=" + database);
+
+        try (Jedis jedis = new Jedis(host, port, timeout)) {
+            if (password != null && !password.trim().isEmpty()) {
+                jedis.auth(password);
+            }
+            jedis.select(database);
+
+            if (args.length >= 2 && "synthetic".equals(args[0])) {
+                runSynthetic(jedis, Integer.parseInt(args[1]));
+            } else {
+                runSampling(jedis, args.length >= 1 ? Integer.parseInt(args[0]) : 1000);
+            }
+        }
+
+        System.out.println("\n========== 完成 ==========");
+    }
+
+    /**
+     * 用SCAN抽样现有键，按编码分类后执行 MEMORY USAGE
+     */
+    private static void runSampling(Jedis jedis, int sampleSize) {
+        System.out.println("模式: 抽样现有键, 每种编码最多 " + sampleSize + " 个\n");
+
+        long stringBytes = 0;
+        long binaryBytes = 0;
+        int stringCount = 0;
+        int binaryCount = 0;
+        byte[] cursor = ScanParams.SCAN_POINTER_START_BINARY;
+        ScanParams params = new ScanParams().count(1000);
+
+        do {
+            ScanResult<byte[]> page = jedis.scan(cursor, params);
+            for (byte[] key : page.getResult()) {
+                if (stringCount < sampleSize && isStringKey(key)) {
+                    stringBytes += memoryUsage(jedis, key);
+                    stringCount++;
+                } else if (binaryCount < sampleSize && isBinaryKey(key)) {
+                    binaryBytes += memoryUsage(jedis, key);
+                    binaryCount++;
+                }
+            }
+            cursor = page.getCursorAsBytes();
+        } while (!SafeEncoder.encode(cursor).equals("0") && (stringCount < sampleSize || binaryCount < sampleSize));
+
+        System.out.println("DBSIZE: " + jedis.dbSize());
+        printLine("string 编码", stringCount, stringBytes);
+        printLine("binary 编码", binaryCount, binaryBytes);
+    }
+
+    /**
+     * 写入两种编码的临时键，以 used_memory 差值计算每键开销（包含字典和过期表的摊销）
+     */
+    private static void runSynthetic(Jedis jedis, int count) {
+        System.out.println("模式: 写入 " + count + " 个临时键（每种编码），TTL 600秒\n");
+
+        DedupKeyCodec stringCodec = new DedupKeyCodec(DedupKeyCodec.Encoding.STRING, false);
+        DedupKeyCodec binaryCodec = new DedupKeyCodec(DedupKeyCodec.Encoding.BINARY, false);
+
+        printLine("string 编码", count, writeAndMeasure(jedis, stringCodec, count));
+        printLine("binary 编码", count, writeAndMeasure(jedis, binaryCodec, count));
+    }
+
+    private static long writeAndMeasure(Jedis jedis, DedupKeyCodec codec, int count) {
+        List<byte[]> keys = new ArrayList<>(count);
+        long before = usedMemory(jedis);
+        Pipeline pipeline = jedis.pipelined();
+        for (int i = 0; i < count; i++) {
+            byte[] key = codec.key(UUID.randomUUID().toString());
+            keys.add(key);
+            pipeline.setex(key, 600, codec.value(System.currentTimeMillis()));
+        }
+        pipeline.sync();
+        long after = usedMemory(jedis);
+
+        pipeline = jedis.pipelined();
+        for (byte[] key : keys) {
+            pipeline.del(key);
+        }
+        pipeline.sync();
+        return after - before;
+    }
+
+    private static boolean isStringKey(byte[] key) {
+        return SafeEncoder.encode(key).startsWith(DedupKeyCodec.STRING_PREFIX);
+    }
+
+    private static boolean isBinaryKey(byte[] key) {
+        return key.length == DedupKeyCodec.BINARY_KEY_LENGTH && key[0] == DedupKeyCodec.BINARY_PREFIX;
+    }
+
+    private static long memoryUsage(Jedis jedis, byte[] key) {
+        Object reply = jedis.sendCommand(MEMORY, SafeEncoder.encode("USAGE"), key,
+            SafeEncoder.encode("SAMPLES"), SafeEncoder.encode("0"));
+        return reply instanceof Long ? (Long) reply : 0L;
+    }
+
+    private static long usedMemory(Jedis jedis) {
+        for (String line : jedis.info("memory").split("\r\n")) {
+            if (line.startsWith("used_memory:")) {
+                return Long.parseLong(line.substring("used_memory:".length()).trim());
+            }
+        }
+        return 0L;
+    }
+
+    private static void printLine(String label, int count, long bytes) {
+        if (count == 0) {
+            System.out.println("  " + label + ": 无样本");
+        } else {
+            System.out.println(String.format("  %s: 样本 %d, 合计 %d 字节, 平均 %.1f 字节/键",
+                label, count, bytes, bytes * 1.0 / count));
+        }
+    }
+}
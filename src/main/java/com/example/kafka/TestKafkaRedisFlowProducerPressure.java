@@ -1,7 +1,9 @@
 package com.example.kafka;
 
 import com.example.kafka.model.Message;
+import com.example.kafka.service.FaultInjectingDedupStore;
 import com.example.kafka.service.MessageService;
+import com.example.kafka.service.RedisService;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -27,6 +29,7 @@ public class TestKafkaRedisFlowProducerPressure {
     // 测试参数配置
     private static final int THREAD_POOL_SIZE = 30;  // 线程池大小
     private static final int TOTAL_MESSAGES = 1000;   // 总消息数
+    private static final long REDIS_LATENCY_MILLIS = 200;  // 注入的Redis操作延迟（延迟期间占用连接池连接）
 
     // 统计计数器
     private static final AtomicInteger successCount = new AtomicInteger(0);
@@ -43,13 +46,16 @@ public class TestKafkaRedisFlowProducerPressure {
         logger.info("  - 线程池大小: {}", THREAD_POOL_SIZE);
         logger.info("  - 总消息数: {}", TOTAL_MESSAGES);
         logger.info("  - 预期Redis连接池: maxTotal=10, maxWait=100ms");
-        logger.info("  - 预期Redis操作延迟: 200ms");
+        logger.info("  - 注入Redis操作延迟: {}ms", REDIS_LATENCY_MILLIS);
         logger.info("");
         logger.info("测试目标: 触发 Redis Connection Pool Exhaustion");
         logger.info("========================================");
         logger.info("");
 
-        MessageService messageService = new MessageService();
+        // 通过故障注入装饰器模拟慢速Redis：每次检查/保存/预占前占用一个连接池连接
+        RedisService redisService = new RedisService();
+        MessageService messageService = new MessageService(new FaultInjectingDedupStore(
+            redisService, REDIS_LATENCY_MILLIS, true, 0.0, 0, 0));
         ExecutorService executor = Executors.newFixedThreadPool(THREAD_POOL_SIZE);
         CountDownLatch latch = new CountDownLatch(TOTAL_MESSAGES);
 
@@ -130,6 +136,8 @@ public class TestKafkaRedisFlowProducerPressure {
 
             // 输出测试结果
             printTestResults(duration);
+            // 连接池饱和情况：等待线程数、借用等待分布
+            logger.info("Redis连接池指标: {}", redisService.getPoolMetrics());
 
         } catch (InterruptedException e) {
             logger.error("测试被中断", e);
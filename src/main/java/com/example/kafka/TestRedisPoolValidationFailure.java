@@ -6,6 +6,7 @@ import org.slf4j.LoggerFactory;
 
 import java.io.BufferedReader;
 import java.io.InputStreamReader;
+import java.util.Properties;
 import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
@@ -17,9 +18,11 @@ import java.util.concurrent.atomic.AtomicInteger;
  *
  * 测试目标: 触发 JedisConnectionException: Could not get a resource from the pool
  * 测试场景: testOnBorrow=true, 连接验证失败
+ * application.properties 默认 testOnBorrow=false（由后台空闲检查代替借用时PING），
+ * 本测试在自己的配置上覆盖为 true，复现借用时验证失败的行为
  *
  * 测试步骤:
- * 1. 启动Redis并初始化连接池（testOnBorrow=true）
+ * 1. 启动Redis并初始化连接池（覆盖 redis.pool.testOnBorrow=true）
  * 2. 等待连接池创建初始连接
  * 3. 停止Redis服务
  * 4. 尝试从连接池获取连接（testOnBorrow验证会失败）
@@ -46,7 +49,7 @@ public class TestRedisPoolValidationFailure {
         logger.info("测试配置:");
         logger.info("  - 线程池大小: {}", THREAD_POOL_SIZE);
         logger.info("  - 总操作数: {}", TOTAL_OPERATIONS);
-        logger.info("  - testOnBorrow: true (连接验证开启)");
+        logger.info("  - testOnBorrow: true (连接验证开启，覆盖默认配置)");
         logger.info("");
         logger.info("测试目标: 触发 JedisConnectionException: Could not get a resource from the pool");
         logger.info("========================================");
@@ -54,7 +57,9 @@ public class TestRedisPoolValidationFailure {
 
         // Step 1: 初始化Redis服务和连接池
         logger.info("Step 1: 初始化Redis服务和连接池...");
-        RedisService redisService = new RedisService();
+        Properties props = RedisService.loadProperties();
+        props.setProperty("redis.pool.testOnBorrow", "true");
+        RedisService redisService = new RedisService(props);
 
         // Step 2: 等待连接池稳定
         logger.info("Step 2: 等待连接池稳定...");
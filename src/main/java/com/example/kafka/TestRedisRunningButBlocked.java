@@ -6,6 +6,7 @@ import org.slf4j.LoggerFactory;
 
 import java.io.BufferedReader;
 import java.io.InputStreamReader;
+import java.util.Properties;
 
 /**
  * 测试：Redis 服务运行，但网络层阻断连接
@@ -41,8 +42,10 @@ public class TestRedisRunningButBlocked {
 
         // Step 2: 初始化连接池并测试
         logger.info("");
-        logger.info("Step 2: 初始化连接池 (testOnBorrow=true)");
-        RedisService redisService = new RedisService();
+        logger.info("Step 2: 初始化连接池 (testOnBorrow=true，覆盖默认配置)");
+        Properties props = RedisService.loadProperties();
+        props.setProperty("redis.pool.testOnBorrow", "true");
+        RedisService redisService = new RedisService(props);
 
         try {
             boolean exists = redisService.isUuidExists("test-initial");
@@ -0,0 +1,89 @@
+package com.example.kafka;
+
+import com.example.kafka.service.RedisService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 测试：Sentinel 主节点故障转移期间的去重调用
+ *
+ * 前置条件：application.properties 中 redis.sentinel.enabled=true，并配置 masterName / nodes
+ * 测试步骤：
+ * 1. 启动测试，多个线程持续执行 saveUuid + isUuidExists
+ * 2. 运行期间停止主节点（例如 docker stop redis-master）
+ * 3. 观察每秒成功/失败数，以及"主节点切换到首次成功去重调用"的耗时
+ */
+public class TestRedisSentinelFailover {
+    private static final Logger logger = LoggerFactory.getLogger(TestRedisSentinelFailover.class);
+
+    private static final int THREAD_COUNT = 10;
+    private static final int DURATION_SECONDS = 120;
+
+    private static final AtomicInteger successCount = new AtomicInteger(0);
+    private static final AtomicInteger failureCount = new AtomicInteger(0);
+
+    public static void main(String[] args) throws InterruptedException {
+        logger.info("========================================");
+        logger.info("测试：Sentinel 主节点故障转移");
+        logger.info("========================================");
+        logger.info("  - 线程数: {}", THREAD_COUNT);
+        logger.info("  - 持续时间: {} 秒", DURATION_SECONDS);
+        logger.info("⚠️  运行期间请手动停止主节点，例如: docker stop redis-master");
+        logger.info("");
+
+        RedisService redisService = new RedisService();
+        ExecutorService executor = Executors.newFixedThreadPool(THREAD_COUNT);
+        long deadline = System.currentTimeMillis() + TimeUnit.SECONDS.toMillis(DURATION_SECONDS);
+
+        for (int i = 0; i < THREAD_COUNT; i++) {
+            executor.submit(() -> {
+                while (System.currentTimeMillis() < deadline) {
+                    String uuid = UUID.randomUUID().toString();
+                    try {
+                        redisService.saveUuid(uuid);
+                        redisService.isUuidExists(uuid);
+                        successCount.incrementAndGet();
+                    } catch (Exception e) {
+                        failureCount.incrementAndGet();
+                    }
+                }
+            });
+        }
+
+        // 每秒输出一次成功/失败数
+        int lastSuccess = 0;
+        int lastFailure = 0;
+        while (System.currentTimeMillis() < deadline) {
+            Thread.sleep(1000);
+            int success = successCount.get();
+            int failure = failureCount.get();
+            logger.info("每秒: 成功 {}, 失败 {}, 最近一次故障转移耗时: {}ms",
+                success - lastSuccess, failure - lastFailure, redisService.getLastFailoverMillis());
+            lastSuccess = success;
+            lastFailure = failure;
+        }
+
+        executor.shutdown();
+        executor.awaitTermination(30, TimeUnit.SECONDS);
+
+        logger.info("");
+        logger.info("========================================");
+        logger.info("测试结果");
+        logger.info("========================================");
+        logger.info("✅ 成功: {}", successCount.get());
+        logger.info("❌ 失败: {}", failureCount.get());
+        long failoverMillis = redisService.getLastFailoverMillis();
+        if (failoverMillis >= 0) {
+            logger.info("🎯 主节点切换到首次成功去重调用: {} ms", failoverMillis);
+        } else {
+            logger.warn("⚠️  未观察到主节点切换（确认 redis.sentinel.enabled=true 且测试期间停止了主节点）");
+        }
+        redisService.close();
+    }
+}
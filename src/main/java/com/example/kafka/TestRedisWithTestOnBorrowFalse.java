@@ -6,6 +6,7 @@ import org.slf4j.LoggerFactory;
 
 import java.io.BufferedReader;
 import java.io.InputStreamReader;
+import java.util.Properties;
 
 /**
  * 对比测试: testOnBorrow=false 时的异常行为
@@ -20,16 +21,15 @@ public class TestRedisWithTestOnBorrowFalse {
         logger.info("对比测试: testOnBorrow=false");
         logger.info("========================================");
         logger.info("");
-        logger.info("⚠️  注意：请先修改 application.properties:");
-        logger.info("   redis.pool.testOnBorrow=false");
-        logger.info("");
-        logger.info("然后重新编译运行此测试");
+        logger.info("本测试在自己的配置上设置 redis.pool.testOnBorrow=false（与 application.properties 默认值一致）");
         logger.info("========================================");
         logger.info("");
 
         // Step 1: 初始化连接池
         logger.info("Step 1: 初始化Redis连接池 (testOnBorrow=false)");
-        RedisService redisService = new RedisService();
+        Properties props = RedisService.loadProperties();
+        props.setProperty("redis.pool.testOnBorrow", "false");
+        RedisService redisService = new RedisService(props);
 
         // Step 2: 首次访问，创建连接
         logger.info("Step 2: 首次访问Redis，创建初始连接");
@@ -0,0 +1,159 @@
+package com.example.kafka.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 连接池容量自适应
+ * 每个周期采样借用等待（等待线程数、本周期内的平均借用等待时间）、连接利用率（active / maxTotal）和Redis命令延迟：
+ * - 有线程在等待连接、本周期平均借用等待超过 growWaitMillis，或利用率超过 highUtilisation 时扩容50%；
+ *   但命令延迟已超过 slowCommandMillis 时不扩容——此时瓶颈在Redis本身，增加连接只会加重负载
+ * - 连续 shrinkAfterIntervals 个周期利用率低于 lowUtilisation 时缩容25%
+ * 借用等待只统计本周期内的借用：连接池自带的平均值是最近100次借用的均值，空闲时不会衰减，
+ * 一次突发之后会持续触发扩容，因此由调用方通过 {@link #recordBorrowWait(long)} 上报。
+ * maxTotal 始终在 [minTotal, maxTotal] 范围内；minIdle 跟随活跃连接数的EWMA，突发过后保留足够的热连接。
+ */
+class AdaptivePoolSizer {
+    private static final Logger logger = LoggerFactory.getLogger(AdaptivePoolSizer.class);
+
+    private static final double EWMA_ALPHA = 0.2;
+
+    private final ResizablePool pool;
+    private final int minTotal;
+    private final int maxTotal;
+    private final long growWaitMillis;
+    private final double highUtilisation;
+    private final double lowUtilisation;
+    private final int shrinkAfterIntervals;
+    private final double slowCommandMicros;
+    private final ScheduledExecutorService scheduler;
+
+    private volatile double commandEwmaMicros;
+    private final AtomicLong intervalBorrowCount = new AtomicLong();
+    private final AtomicLong intervalBorrowWaitNanos = new AtomicLong();
+    private double activeEwma;
+    private int lowIntervals;
+    private volatile long growCount;
+    private volatile long shrinkCount;
+
+    /**
+     * @param pool                 连接池
+     * @param minTotal             maxTotal 下界
+     * @param maxTotal             maxTotal 上界
+     * @param intervalMillis       采样周期（毫秒）
+     * @param growWaitMillis       平均借用等待超过该值时扩容（毫秒）
+     * @param highUtilisation      利用率超过该值时扩容（0~1）
+     * @param lowUtilisation       利用率低于该值时计入缩容（0~1）
+     * @param shrinkAfterIntervals 连续多少个低利用率周期后缩容
+     * @param slowCommandMillis    命令延迟EWMA超过该值时不扩容（毫秒）
+     */
+    AdaptivePoolSizer(ResizablePool pool, int minTotal, int maxTotal, long intervalMillis, long growWaitMillis,
+                      double highUtilisation, double lowUtilisation, int shrinkAfterIntervals, long slowCommandMillis) {
+        this.pool = pool;
+        this.minTotal = Math.max(1, minTotal);
+        this.maxTotal = Math.max(this.minTotal, maxTotal);
+        this.growWaitMillis = growWaitMillis;
+        this.highUtilisation = highUtilisation;
+        this.lowUtilisation = lowUtilisation;
+        this.shrinkAfterIntervals = Math.max(1, shrinkAfterIntervals);
+        this.slowCommandMicros = TimeUnit.MILLISECONDS.toMicros(slowCommandMillis);
+
+        int initial = clamp(pool.getMaxTotal(), this.minTotal, this.maxTotal);
+        pool.resize(initial, Math.min(pool.getMinIdle(), initial));
+
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "redis-pool-sizer");
+            thread.setDaemon(true);
+            return thread;
+        });
+        scheduler.scheduleWithFixedDelay(this::adjust, intervalMillis, intervalMillis, TimeUnit.MILLISECONDS);
+        logger.info("Redis连接池自适应已启用: maxTotal范围=[{}, {}], 当前={}, 周期={}ms",
+            this.minTotal, this.maxTotal, initial, intervalMillis);
+    }
+
+    /**
+     * 记录一次Redis命令耗时（不含借用连接的等待）
+     */
+    void recordCommandLatency(long elapsedNanos) {
+        long micros = TimeUnit.NANOSECONDS.toMicros(elapsedNanos);
+        double current = commandEwmaMicros;
+        commandEwmaMicros = current == 0 ? micros : current + EWMA_ALPHA * (micros - current);
+    }
+
+    /**
+     * 记录一次借用连接的等待时间
+     */
+    void recordBorrowWait(long elapsedNanos) {
+        intervalBorrowWaitNanos.addAndGet(elapsedNanos);
+        intervalBorrowCount.incrementAndGet();
+    }
+
+    private void adjust() {
+        try {
+            int current = pool.getMaxTotal();
+            int active = pool.getNumActive();
+            int waiters = pool.getNumWaiters();
+            long borrows = intervalBorrowCount.getAndSet(0);
+            long waitNanos = intervalBorrowWaitNanos.getAndSet(0);
+            long borrowWait = borrows > 0 ? TimeUnit.NANOSECONDS.toMillis(waitNanos / borrows) : 0;
+            double utilisation = current > 0 ? active * 1.0 / current : 0;
+            activeEwma = activeEwma == 0 ? active : activeEwma + EWMA_ALPHA * (active - activeEwma);
+            boolean redisSlow = slowCommandMicros > 0 && commandEwmaMicros >= slowCommandMicros;
+
+            int target = current;
+            if (waiters > 0 || borrowWait >= growWaitMillis || utilisation >= highUtilisation) {
+                lowIntervals = 0;
+                if (!redisSlow) {
+                    target = clamp(current + Math.max(1, current / 2), minTotal, maxTotal);
+                }
+            } else if (utilisation < lowUtilisation) {
+                if (++lowIntervals >= shrinkAfterIntervals) {
+                    lowIntervals = 0;
+                    target = clamp(current - Math.max(1, current / 4), minTotal, maxTotal);
+                }
+            } else {
+                lowIntervals = 0;
+            }
+
+            int minIdle = clamp((int) Math.ceil(activeEwma), 0, target);
+            if (target != current || minIdle != pool.getMinIdle()) {
+                pool.resize(target, minIdle);
+            }
+            if (target > current) {
+                growCount++;
+                logger.info("Redis连接池扩容: maxTotal {} -> {}, minIdle={}, active={}, waiters={}, 本周期平均借用等待={}ms",
+                    current, target, minIdle, active, waiters, borrowWait);
+            } else if (target < current) {
+                shrinkCount++;
+                logger.info("Redis连接池缩容: maxTotal {} -> {}, minIdle={}, active={}", current, target, minIdle, active);
+            } else if (redisSlow && waiters > 0) {
+                logger.warn("Redis命令延迟 {}us 超过阈值，连接等待中但不扩容", String.format("%.0f", commandEwmaMicros));
+            }
+        } catch (Exception e) {
+            logger.warn("Redis连接池容量调整失败: {}", e.getMessage());
+        }
+    }
+
+    private static int clamp(int value, int min, int max) {
+        return Math.max(min, Math.min(max, value));
+    }
+
+    @Override
+    public String toString() {
+        return "AdaptivePoolSizer{maxTotal=" + pool.getMaxTotal() +
+                ", minIdle=" + pool.getMinIdle() +
+                ", grows=" + growCount +
+                ", shrinks=" + shrinkCount +
+                ", commandEwmaMicros=" + String.format("%.0f", commandEwmaMicros) + '}';
+    }
+
+    void close() {
+        scheduler.shutdownNow();
+        logger.info("Redis连接池自适应已关闭: {}", this);
+    }
+}
@@ -0,0 +1,97 @@
+package com.example.kafka.service;
+
+import redis.clients.jedis.util.SafeEncoder;
+
+/**
+ * 去重键值编码
+ * STRING：键为 "message:uuid:" + 36位UUID（49字节），值为发送时间戳字符串（原有格式）
+ * BINARY：键为 1字节前缀 + 16字节UUID（17字节），值为单字节 "1"
+ *
+ * BINARY模式下开启 legacyRead 时，存在性检查同时查询旧的字符串键，
+ * 切换编码后旧数据在过期前仍然有效，无需迁移脚本。
+ */
+public class DedupKeyCodec {
+    public static final String STRING_PREFIX = "message:uuid:";
+    public static final byte BINARY_PREFIX = 'u';
+    public static final int BINARY_KEY_LENGTH = 17;
+
+    private static final byte[] BINARY_VALUE = {'1'};
+
+    public enum Encoding {
+        STRING, BINARY
+    }
+
+    private final Encoding encoding;
+    private final boolean legacyRead;
+
+    /**
+     * @param encoding   写入使用的编码
+     * @param legacyRead BINARY模式下是否兼容读取字符串键
+     */
+    public DedupKeyCodec(Encoding encoding, boolean legacyRead) {
+        this.encoding = encoding;
+        this.legacyRead = legacyRead && encoding == Encoding.BINARY;
+    }
+
+    public Encoding getEncoding() {
+        return encoding;
+    }
+
+    /**
+     * 是否需要额外检查旧的字符串键
+     */
+    public boolean hasLegacyFallback() {
+        return legacyRead;
+    }
+
+    /**
+     * 写入使用的键
+     */
+    public byte[] key(String uuid) {
+        return encoding == Encoding.BINARY ? binaryKey(uuid) : stringKey(uuid);
+    }
+
+    /**
+     * 存在性检查/删除需要覆盖的全部键（写入键，以及兼容读取时的字符串键）
+     */
+    public byte[][] lookupKeys(String uuid) {
+        if (legacyRead) {
+            return new byte[][]{binaryKey(uuid), stringKey(uuid)};
+        }
+        return new byte[][]{key(uuid)};
+    }
+
+    /**
+     * 旧格式的字符串键
+     */
+    public byte[] legacyKey(String uuid) {
+        return stringKey(uuid);
+    }
+
+    /**
+     * 写入的值：STRING模式为时间戳字符串，BINARY模式为最小值
+     */
+    public byte[] value(long timestamp) {
+        return encoding == Encoding.BINARY ? BINARY_VALUE : SafeEncoder.encode(String.valueOf(timestamp));
+    }
+
+    static byte[] stringKey(String uuid) {
+        return SafeEncoder.encode(STRING_PREFIX + uuid);
+    }
+
+    static byte[] binaryKey(String uuid) {
+        long[] bits = UuidHashing.toBits(uuid);
+        byte[] key = new byte[BINARY_KEY_LENGTH];
+        key[0] = BINARY_PREFIX;
+        putLong(key, 1, bits[0]);
+        putLong(key, 9, bits[1]);
+        return key;
+    }
+
+    private static void putLong(byte[] target, int offset, long value) {
+        for (int i = 7; i >= 0; i--) {
+            target[offset + i] = (byte) value;
+            value >>>= 8;
+        }
+    }
+}
@@ -0,0 +1,38 @@
+package com.example.kafka.service;
+
+import redis.clients.jedis.Pipeline;
+
+import java.util.function.Supplier;
+
+/**
+ * 去重数据在Redis中的存储布局
+ * 每个操作只向pipeline排入命令，返回的Supplier在pipeline.sync()之后求值，
+ * 因此单条调用、批量调用和自动pipeline调度器可以共用同一套布局实现。
+ */
+interface DedupLayout {
+
+    /**
+     * 排入存在性检查（已确认或仍在租约中的UUID均视为存在）
+     */
+    Supplier<Boolean> queueExists(Pipeline pipeline, String uuid);
+
+    /**
+     * 排入预占：UUID不存在时写入租约，结果为是否预占成功
+     */
+    Supplier<Boolean> queueReserve(Pipeline pipeline, String uuid, long timestamp, int leaseSeconds);
+
+    /**
+     * 排入保存：标记UUID已发送，保留完整去重窗口
+     */
+    Supplier<Boolean> queueSave(Pipeline pipeline, String uuid, long timestamp);
+
+    /**
+     * 排入租约释放，结果为租约是否存在
+     */
+    Supplier<Boolean> queueRelease(Pipeline pipeline, String uuid);
+
+    /**
+     * 排入删除（租约与已确认记录），结果为是否删除了数据
+     */
+    Supplier<Boolean> queueDelete(Pipeline pipeline, String uuid);
+}
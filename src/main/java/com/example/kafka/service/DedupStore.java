@@ -0,0 +1,80 @@
+package com.example.kafka.service;
+
+import java.util.Collection;
+import java.util.Map;
+
+/**
+ * 消息去重存储
+ * MessageService只依赖该接口，具体实现（Redis单机、故障注入装饰器等）由 {@link DedupStoreFactory} 按配置创建
+ */
+public interface DedupStore {
+
+    /**
+     * 检查UUID是否已存在（消息是否已发送）
+     *
+     * @param uuid 消息UUID
+     * @return true-已存在，false-不存在
+     */
+    boolean isUuidExists(String uuid);
+
+    /**
+     * 保存UUID（标记消息已发送），保留完整去重窗口
+     *
+     * @param uuid 消息UUID
+     * @return true-保存成功，false-保存失败
+     */
+    boolean saveUuid(String uuid);
+
+    /**
+     * 预占UUID：仅当UUID不存在时写入短租约
+     *
+     * @param uuid 消息UUID
+     * @return true-预占成功（消息未发送过），false-UUID已存在或已被其他发送方预占
+     */
+    boolean reserveUuid(String uuid);
+
+    /**
+     * 释放UUID租约（发送失败时调用，允许后续重试）
+     *
+     * @param uuid 消息UUID
+     * @return true-释放成功，false-租约已不存在
+     */
+    boolean releaseUuid(String uuid);
+
+    /**
+     * 删除UUID（用于测试或异常处理）
+     *
+     * @param uuid 消息UUID
+     * @return true-删除成功，false-删除失败
+     */
+    boolean deleteUuid(String uuid);
+
+    /**
+     * 批量检查UUID是否已存在
+     *
+     * @param uuids 消息UUID集合
+     * @return UUID到是否存在的映射，顺序与入参一致
+     */
+    Map<String, Boolean> existsBatch(Collection<String> uuids);
+
+    /**
+     * 批量预占UUID：一次调用完成整批的存在性检查与租约写入，批内重复的UUID只预占一次
+     *
+     * @param uuids 消息UUID集合
+     * @return UUID到是否预占成功（消息未发送过）的映射，顺序与入参一致
+     */
+    Map<String, Boolean> reserveBatch(Collection<String> uuids);
+
+    /**
+     * 批量保存UUID
+     *
+     * @param uuidValues UUID到写入值（通常为发送时间戳）的映射
+     * @return 保存成功的UUID数量
+     */
+    int saveBatch(Map<String, Long> uuidValues);
+
+    /**
+     * 关闭存储，释放连接等资源
+     */
+    void close();
+}
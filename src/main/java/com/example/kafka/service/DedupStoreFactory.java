@@ -0,0 +1,48 @@
+package com.example.kafka.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Properties;
+
+/**
+ * 按配置创建去重存储
+ */
+public final class DedupStoreFactory {
+    private static final Logger logger = LoggerFactory.getLogger(DedupStoreFactory.class);
+
+    private DedupStoreFactory() {
+    }
+
+    /**
+     * 创建去重存储：按 dedup.backend 选择实现（single：单机Redis；sharded：客户端一致性哈希分片；cluster：Redis Cluster；
+     * mmap：本地内存映射文件，仅限单节点部署），
+     * redis.fault.enabled=true 时外层套上故障注入装饰器
+     */
+    public static DedupStore create(Properties props) {
+        DedupStore store = createBackend(props);
+        if (Boolean.parseBoolean(props.getProperty("redis.fault.enabled", "false"))) {
+            logger.warn("redis.fault.enabled=true，去重存储将注入人为故障，请勿在生产环境使用");
+            store = FaultInjectingDedupStore.fromProperties(store, props);
+        }
+        return store;
+    }
+
+    private static DedupStore createBackend(Properties props) {
+        String backend = props.getProperty("dedup.backend", "single");
+        logger.info("去重存储后端: {}", backend);
+        switch (backend.toLowerCase()) {
+            case "single":
+                return new RedisService(props, props.getProperty("redis.host", "localhost"),
+                    Integer.parseInt(props.getProperty("redis.port", "6379")));
+            case "sharded":
+                return ShardedRedisDedupStore.fromProperties(props);
+            case "cluster":
+                return new RedisClusterDedupStore(props);
+            case "mmap":
+                return MappedFileDedupStore.fromProperties(props);
+            default:
+                throw new IllegalArgumentException("不支持的去重存储后端: " + backend);
+        }
+    }
+}
@@ -0,0 +1,176 @@
+package com.example.kafka.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import redis.clients.jedis.exceptions.JedisConnectionException;
+
+import java.util.Collection;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 故障注入装饰器（仅用于压力/故障测试）
+ * 在检查、保存、预占操作前按配置注入固定延迟、周期性暂停或随机异常，再委托给真实存储；
+ * 未启用时不会被创建，生产路径上不存在任何人为等待。
+ *
+ * holdConnection=true 且被装饰的是 {@link RedisService} 时，延迟期间占用一个连接池连接，
+ * 与原先在Redis操作中sleep的效果相同，可复现连接池耗尽（Could not get a resource from the pool）。
+ */
+public class FaultInjectingDedupStore implements DedupStore {
+    private static final Logger logger = LoggerFactory.getLogger(FaultInjectingDedupStore.class);
+
+    private final DedupStore delegate;
+    private final long latencyMillis;
+    private final boolean holdConnection;
+    private final double exceptionRate;
+    private final long pausePeriodMillis;
+    private final long pauseDurationMillis;
+    private final long startTime = System.currentTimeMillis();
+
+    private final AtomicLong injectedDelayCount = new AtomicLong();
+    private final AtomicLong injectedExceptionCount = new AtomicLong();
+
+    /**
+     * @param delegate            被装饰的真实存储
+     * @param latencyMillis       每次操作注入的固定延迟（毫秒），0表示不注入
+     * @param holdConnection      延迟期间是否占用连接池连接（仅对RedisService生效）
+     * @param exceptionRate       随机抛出连接异常的概率（0~1）
+     * @param pausePeriodMillis   周期性暂停的周期（毫秒），0表示不暂停
+     * @param pauseDurationMillis 每个周期开头的暂停时长（毫秒），暂停期间的操作阻塞到暂停结束
+     */
+    public FaultInjectingDedupStore(DedupStore delegate, long latencyMillis, boolean holdConnection,
+                                    double exceptionRate, long pausePeriodMillis, long pauseDurationMillis) {
+        this.delegate = delegate;
+        this.latencyMillis = Math.max(0, latencyMillis);
+        this.holdConnection = holdConnection;
+        this.exceptionRate = exceptionRate;
+        this.pausePeriodMillis = Math.max(0, pausePeriodMillis);
+        this.pauseDurationMillis = Math.max(0, pauseDurationMillis);
+        logger.warn("⚠️  去重存储故障注入已启用: latency={}ms, holdConnection={}, exceptionRate={}, pause={}ms/{}ms",
+            this.latencyMillis, holdConnection, exceptionRate, this.pauseDurationMillis, this.pausePeriodMillis);
+    }
+
+    /**
+     * 按 redis.fault.* 配置创建
+     */
+    public static FaultInjectingDedupStore fromProperties(DedupStore delegate, Properties props) {
+        return new FaultInjectingDedupStore(delegate,
+            Long.parseLong(props.getProperty("redis.fault.latencyMillis", "0")),
+            Boolean.parseBoolean(props.getProperty("redis.fault.holdConnection", "true")),
+            Double.parseDouble(props.getProperty("redis.fault.exceptionRate", "0")),
+            Long.parseLong(props.getProperty("redis.fault.pause.periodMillis", "0")),
+            Long.parseLong(props.getProperty("redis.fault.pause.durationMillis", "0")));
+    }
+
+    @Override
+    public boolean isUuidExists(String uuid) {
+        injectFault("isUuidExists");
+        return delegate.isUuidExists(uuid);
+    }
+
+    @Override
+    public boolean saveUuid(String uuid) {
+        injectFault("saveUuid");
+        return delegate.saveUuid(uuid);
+    }
+
+    @Override
+    public boolean reserveUuid(String uuid) {
+        injectFault("reserveUuid");
+        return delegate.reserveUuid(uuid);
+    }
+
+    @Override
+    public boolean releaseUuid(String uuid) {
+        return delegate.releaseUuid(uuid);
+    }
+
+    @Override
+    public boolean deleteUuid(String uuid) {
+        return delegate.deleteUuid(uuid);
+    }
+
+    @Override
+    public Map<String, Boolean> existsBatch(Collection<String> uuids) {
+        injectFault("existsBatch");
+        return delegate.existsBatch(uuids);
+    }
+
+    @Override
+    public Map<String, Boolean> reserveBatch(Collection<String> uuids) {
+        injectFault("reserveBatch");
+        return delegate.reserveBatch(uuids);
+    }
+
+    @Override
+    public int saveBatch(Map<String, Long> uuidValues) {
+        injectFault("saveBatch");
+        return delegate.saveBatch(uuidValues);
+    }
+
+    /**
+     * 被装饰的真实存储
+     */
+    public DedupStore getDelegate() {
+        return delegate;
+    }
+
+    public long getInjectedDelayCount() {
+        return injectedDelayCount.get();
+    }
+
+    public long getInjectedExceptionCount() {
+        return injectedExceptionCount.get();
+    }
+
+    @Override
+    public void close() {
+        logger.info("故障注入统计: 注入延迟 {} 次, 注入异常 {} 次",
+            injectedDelayCount.get(), injectedExceptionCount.get());
+        delegate.close();
+    }
+
+    private void injectFault(String operation) {
+        long delay = latencyMillis + remainingPauseMillis();
+        if (delay > 0) {
+            injectedDelayCount.incrementAndGet();
+            try {
+                if (holdConnection && delegate instanceof RedisService) {
+                    ((RedisService) delegate).holdConnection(delay);
+                } else {
+                    sleep(delay);
+                }
+            } catch (RuntimeException e) {
+                logger.error("{} 注入延迟时获取连接失败", operation, e);
+                throw new RuntimeException("Redis操作失败", e);
+            }
+        }
+
+        if (exceptionRate > 0 && ThreadLocalRandom.current().nextDouble() < exceptionRate) {
+            injectedExceptionCount.incrementAndGet();
+            throw new RuntimeException("Redis操作失败",
+                new JedisConnectionException("故障注入: " + operation));
+        }
+    }
+
+    /**
+     * 当前处于暂停区间时，返回距暂停结束的剩余时间
+     */
+    private long remainingPauseMillis() {
+        if (pausePeriodMillis <= 0 || pauseDurationMillis <= 0) {
+            return 0;
+        }
+        long phase = (System.currentTimeMillis() - startTime) % pausePeriodMillis;
+        return phase < pauseDurationMillis ? pauseDurationMillis - phase : 0;
+    }
+
+    static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,135 @@
+package com.example.kafka.service;
+
+import redis.clients.jedis.Pipeline;
+import redis.clients.jedis.Response;
+import redis.clients.jedis.params.SetParams;
+import redis.clients.jedis.util.SafeEncoder;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Supplier;
+
+/**
+ * 哈希分桶布局
+ * 已确认的UUID按哈希分散到N个Redis Hash中（字段为16字节UUID，值为单字节），每个Hash条目少，
+ * 能保持listpack紧凑编码；过期按时间桶整体设置在Hash上，Redis不再为每个UUID维护过期时间。
+ *
+ * 键格式：message:uuid:h:{时间桶}:{哈希桶}，时间桶长度为 timeBucketSeconds，
+ * 整个Hash在 时间桶结束 + 去重窗口 时过期；查询覆盖去重窗口内的全部时间桶。
+ * 租约仍使用短TTL的独立键（{@link DedupKeyCodec#key(String)}），确认后不主动删除，到期自动失效，
+ * 保证"检查各时间桶 + SET NX 租约"在并发确认时不会出现空档。
+ */
+class HashBucketDedupLayout implements DedupLayout {
+    private static final String BUCKET_PREFIX = DedupKeyCodec.STRING_PREFIX + "h:";
+    private static final byte[] FIELD_VALUE = {'1'};
+
+    private final DedupKeyCodec keyCodec;
+    private final long expireSeconds;
+    private final long timeBucketSeconds;
+    private final int buckets;
+
+    /**
+     * @param keyCodec          租约键编码
+     * @param expireSeconds     去重窗口（秒）
+     * @param timeBucketSeconds 时间桶长度（秒）
+     * @param buckets           每个时间桶内的Hash数量
+     */
+    HashBucketDedupLayout(DedupKeyCodec keyCodec, long expireSeconds, long timeBucketSeconds, int buckets) {
+        this.keyCodec = keyCodec;
+        this.expireSeconds = expireSeconds;
+        this.timeBucketSeconds = Math.max(1, timeBucketSeconds);
+        this.buckets = Math.max(1, buckets);
+    }
+
+    @Override
+    public Supplier<Boolean> queueExists(Pipeline pipeline, String uuid) {
+        long[] bits = UuidHashing.toBits(uuid);
+        byte[] field = UuidHashing.toBytes(bits);
+        List<Response<Boolean>> checks = new ArrayList<>();
+        for (long timeBucket : timeBucketsInWindow(System.currentTimeMillis())) {
+            checks.add(pipeline.hexists(bucketKey(timeBucket, bits), field));
+        }
+        Response<Boolean> lease = pipeline.exists(keyCodec.key(uuid));
+        return () -> Boolean.TRUE.equals(lease.get()) || anyTrue(checks);
+    }
+
+    @Override
+    public Supplier<Boolean> queueReserve(Pipeline pipeline, String uuid, long timestamp, int leaseSeconds) {
+        long[] bits = UuidHashing.toBits(uuid);
+        byte[] field = UuidHashing.toBytes(bits);
+        List<Response<Boolean>> checks = new ArrayList<>();
+        for (long timeBucket : timeBucketsInWindow(timestamp)) {
+            checks.add(pipeline.hexists(bucketKey(timeBucket, bits), field));
+        }
+        Response<String> result = pipeline.set(keyCodec.key(uuid), keyCodec.value(timestamp),
+            SetParams.setParams().nx().ex(leaseSeconds));
+        return () -> "OK".equals(result.get()) && !anyTrue(checks);
+    }
+
+    @Override
+    public Supplier<Boolean> queueSave(Pipeline pipeline, String uuid, long timestamp) {
+        long[] bits = UuidHashing.toBits(uuid);
+        long timeBucket = timeBucketOf(timestamp);
+        byte[] key = bucketKey(timeBucket, bits);
+        Response<Long> result = pipeline.hset(key, UuidHashing.toBytes(bits), FIELD_VALUE);
+        // 过期时间只与时间桶有关，同一个桶重复设置为相同值
+        pipeline.expireAt(key, (timeBucket + 1) * timeBucketSeconds + expireSeconds);
+        return () -> result.get() != null;
+    }
+
+    @Override
+    public Supplier<Boolean> queueRelease(Pipeline pipeline, String uuid) {
+        Response<Long> deleted = pipeline.del(keyCodec.key(uuid));
+        return () -> KeyDedupLayout.isPositive(deleted.get());
+    }
+
+    @Override
+    public Supplier<Boolean> queueDelete(Pipeline pipeline, String uuid) {
+        long[] bits = UuidHashing.toBits(uuid);
+        byte[] field = UuidHashing.toBytes(bits);
+        List<Response<Long>> deletes = new ArrayList<>();
+        for (long timeBucket : timeBucketsInWindow(System.currentTimeMillis())) {
+            deletes.add(pipeline.hdel(bucketKey(timeBucket, bits), field));
+        }
+        deletes.add(pipeline.del(keyCodec.key(uuid)));
+        return () -> {
+            for (Response<Long> deleted : deletes) {
+                if (KeyDedupLayout.isPositive(deleted.get())) {
+                    return true;
+                }
+            }
+            return false;
+        };
+    }
+
+    private long timeBucketOf(long timestampMillis) {
+        return timestampMillis / 1000 / timeBucketSeconds;
+    }
+
+    /**
+     * 去重窗口覆盖的全部时间桶，从新到旧
+     */
+    private List<Long> timeBucketsInWindow(long nowMillis) {
+        long newest = timeBucketOf(nowMillis);
+        long oldest = timeBucketOf(nowMillis - expireSeconds * 1000);
+        List<Long> result = new ArrayList<>((int) (newest - oldest + 1));
+        for (long timeBucket = newest; timeBucket >= oldest; timeBucket--) {
+            result.add(timeBucket);
+        }
+        return result;
+    }
+
+    private byte[] bucketKey(long timeBucket, long[] bits) {
+        int bucket = (int) ((UuidHashing.mix64(bits[0] ^ bits[1]) & Long.MAX_VALUE) % buckets);
+        return SafeEncoder.encode(BUCKET_PREFIX + timeBucket + ":" + bucket);
+    }
+
+    private static boolean anyTrue(List<Response<Boolean>> checks) {
+        for (Response<Boolean> check : checks) {
+            if (Boolean.TRUE.equals(check.get())) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
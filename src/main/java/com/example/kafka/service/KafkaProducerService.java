@@ -12,6 +12,7 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.util.Properties;
 import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
 
 /**
  * Kafka生产者服务类
@@ -47,9 +48,23 @@ public class KafkaProducerService {
             props.put("batch.size", fileProps.getProperty("kafka.batch.size", "16384"));
             props.put("linger.ms", fileProps.getProperty("kafka.linger.ms", "1"));
             props.put("buffer.memory", fileProps.getProperty("kafka.buffer.memory", "33554432"));
+            // 一次同步发送最长耗时约为 max.block.ms + delivery.timeout.ms，必须短于去重预占租约，
+            // 否则租约到期后并发重试可以重新预占并重复发送
+            props.put("max.block.ms", fileProps.getProperty("kafka.max.block.ms", "5000"));
+            props.put("request.timeout.ms", fileProps.getProperty("kafka.request.timeout.ms", "10000"));
+            props.put("delivery.timeout.ms", fileProps.getProperty("kafka.delivery.timeout.ms", "20000"));
             props.put("key.serializer", fileProps.getProperty("kafka.key.serializer"));
             props.put("value.serializer", fileProps.getProperty("kafka.value.serializer"));
 
+            long maxSendMillis = Long.parseLong(props.getProperty("max.block.ms"))
+                + Long.parseLong(props.getProperty("delivery.timeout.ms"));
+            long leaseMillis = TimeUnit.SECONDS.toMillis(
+                Long.parseLong(fileProps.getProperty("redis.uuid.lease.seconds", "30")));
+            if (maxSendMillis >= leaseMillis) {
+                logger.warn("Kafka单次发送最长耗时 {}ms（max.block.ms + delivery.timeout.ms）不短于去重预占租约 {}ms，"
+                    + "慢发送期间租约可能到期而被并发重试重复发送", maxSendMillis, leaseMillis);
+            }
+
             this.topic = fileProps.getProperty("kafka.topic");
             this.producer = new KafkaProducer<>(props);
 
@@ -0,0 +1,120 @@
+package com.example.kafka.service;
+
+import redis.clients.jedis.Jedis;
+import redis.clients.jedis.Pipeline;
+import redis.clients.jedis.Response;
+import redis.clients.jedis.params.SetParams;
+import redis.clients.jedis.util.SafeEncoder;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Supplier;
+
+/**
+ * 每个UUID一个独立键的布局（原有方式），键值编码由 {@link DedupKeyCodec} 决定
+ * 租约与确认记录是同一个键：预占为 SET NX EX lease，保存为 SETEX 覆盖并延长过期时间
+ */
+class KeyDedupLayout implements DedupLayout {
+    /**
+     * 批量预占：KEYS为各UUID的写入键（兼容读取时其后依次为旧字符串键），ARGV[1]=租约秒数，ARGV[2]=写入值，
+     * ARGV[3]='1'表示带旧键。逐个 SET NX EX，旧键已存在的UUID不再写入租约。
+     * 返回位图字符串：第i个UUID预占成功则第i位为1（高位在前，与 SETBIT/GETBIT 的位序一致）。
+     */
+    private static final RedisScript RESERVE_BATCH = new RedisScript("reserveBatch",
+        "local legacy = ARGV[3] == '1'\n" +
+        "local n = #KEYS\n" +
+        "if legacy then n = n / 2 end\n" +
+        "local out = {}\n" +
+        "local byte = 0\n" +
+        "for i = 1, n do\n" +
+        "  if not (legacy and redis.call('EXISTS', KEYS[n + i]) == 1) then\n" +
+        "    if redis.call('SET', KEYS[i], ARGV[2], 'NX', 'EX', ARGV[1]) then\n" +
+        "      byte = byte + 2 ^ (7 - (i - 1) % 8)\n" +
+        "    end\n" +
+        "  end\n" +
+        "  if i % 8 == 0 or i == n then\n" +
+        "    out[#out + 1] = string.char(byte)\n" +
+        "    byte = 0\n" +
+        "  end\n" +
+        "end\n" +
+        "return table.concat(out)\n");
+
+    private final DedupKeyCodec keyCodec;
+    private final int expireSeconds;
+
+    KeyDedupLayout(DedupKeyCodec keyCodec, int expireSeconds) {
+        this.keyCodec = keyCodec;
+        this.expireSeconds = expireSeconds;
+    }
+
+    @Override
+    public Supplier<Boolean> queueExists(Pipeline pipeline, String uuid) {
+        Response<Long> count = pipeline.exists(keyCodec.lookupKeys(uuid));
+        return () -> isPositive(count.get());
+    }
+
+    @Override
+    public Supplier<Boolean> queueReserve(Pipeline pipeline, String uuid, long timestamp, int leaseSeconds) {
+        // 兼容读取时在同一pipeline内检查旧字符串键；旧键存在则视为重复，
+        // 此时新写入的租约不必撤销，到期自动失效
+        Response<Boolean> legacy = keyCodec.hasLegacyFallback()
+            ? pipeline.exists(keyCodec.legacyKey(uuid))
+            : null;
+        Response<String> result = pipeline.set(keyCodec.key(uuid), keyCodec.value(timestamp),
+            SetParams.setParams().nx().ex(leaseSeconds));
+        return () -> "OK".equals(result.get()) && (legacy == null || !Boolean.TRUE.equals(legacy.get()));
+    }
+
+    @Override
+    public Supplier<Boolean> queueSave(Pipeline pipeline, String uuid, long timestamp) {
+        Response<String> result = pipeline.setex(keyCodec.key(uuid), expireSeconds, keyCodec.value(timestamp));
+        return () -> "OK".equals(result.get());
+    }
+
+    @Override
+    public Supplier<Boolean> queueRelease(Pipeline pipeline, String uuid) {
+        Response<Long> deleted = pipeline.del(keyCodec.key(uuid));
+        return () -> isPositive(deleted.get());
+    }
+
+    @Override
+    public Supplier<Boolean> queueDelete(Pipeline pipeline, String uuid) {
+        Response<Long> deleted = pipeline.del(keyCodec.lookupKeys(uuid));
+        return () -> isPositive(deleted.get());
+    }
+
+    /**
+     * 通过Lua脚本批量预占，一次往返完成整批的存在性检查与租约写入
+     *
+     * @return UUID到是否预占成功的映射，顺序与入参一致
+     */
+    Map<String, Boolean> reserveBatch(Jedis jedis, List<String> uuids, long timestamp, int leaseSeconds) {
+        boolean legacy = keyCodec.hasLegacyFallback();
+        List<byte[]> keys = new ArrayList<>(legacy ? uuids.size() * 2 : uuids.size());
+        for (String uuid : uuids) {
+            keys.add(keyCodec.key(uuid));
+        }
+        if (legacy) {
+            for (String uuid : uuids) {
+                keys.add(keyCodec.legacyKey(uuid));
+            }
+        }
+        List<byte[]> args = new ArrayList<>(3);
+        args.add(SafeEncoder.encode(String.valueOf(leaseSeconds)));
+        args.add(keyCodec.value(timestamp));
+        args.add(SafeEncoder.encode(legacy ? "1" : "0"));
+
+        byte[] bitmap = (byte[]) RESERVE_BATCH.eval(jedis, keys, args);
+        Map<String, Boolean> result = new LinkedHashMap<>();
+        for (int i = 0; i < uuids.size(); i++) {
+            result.put(uuids.get(i), (bitmap[i >> 3] & (0x80 >>> (i & 7))) != 0);
+        }
+        return result;
+    }
+
+    static boolean isPositive(Long value) {
+        return value != null && value > 0;
+    }
+}
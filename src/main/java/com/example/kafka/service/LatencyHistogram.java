@@ -0,0 +1,69 @@
+package com.example.kafka.service;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * 延迟直方图
+ * 按微秒以2的幂分桶（第i个桶覆盖 [2^(i-1), 2^i) 微秒），记录无锁，只用于报告分位数的数量级。
+ */
+public class LatencyHistogram {
+    private static final int BUCKETS = 40;
+
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+    private final AtomicLong total = new AtomicLong();
+    private final AtomicLong maxMicros = new AtomicLong();
+
+    /**
+     * 记录一次耗时
+     */
+    public void record(long elapsedNanos) {
+        long micros = TimeUnit.NANOSECONDS.toMicros(Math.max(0, elapsedNanos));
+        int bucket = Math.min(BUCKETS - 1, 64 - Long.numberOfLeadingZeros(micros));
+        counts.incrementAndGet(bucket);
+        total.incrementAndGet();
+        long max;
+        while (micros > (max = maxMicros.get()) && !maxMicros.compareAndSet(max, micros)) {
+            // 重试直到写入更大的值
+        }
+    }
+
+    public long getCount() {
+        return total.get();
+    }
+
+    public long getMaxMicros() {
+        return maxMicros.get();
+    }
+
+    /**
+     * 分位数的上界（微秒）
+     *
+     * @param percentile 分位，如0.99
+     */
+    public long percentileMicros(double percentile) {
+        long count = total.get();
+        if (count == 0) {
+            return 0;
+        }
+        long rank = (long) Math.ceil(count * percentile);
+        long seen = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            seen += counts.get(i);
+            if (seen >= rank) {
+                return Math.min(i == 0 ? 0 : 1L << i, maxMicros.get());
+            }
+        }
+        return maxMicros.get();
+    }
+
+    @Override
+    public String toString() {
+        return "count=" + getCount() +
+                ", p50=" + percentileMicros(0.50) + "us" +
+                ", p99=" + percentileMicros(0.99) + "us" +
+                ", p999=" + percentileMicros(0.999) + "us" +
+                ", max=" + getMaxMicros() + "us";
+    }
+}
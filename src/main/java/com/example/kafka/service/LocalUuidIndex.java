@@ -0,0 +1,67 @@
+package com.example.kafka.service;
+
+/**
+ * 进程内UUID索引，记录已确认存在的UUID及其过期时间
+ * 实现：{@link UuidNearCache}（堆内LRU）、{@link OffHeapUuidSet}（堆外开放寻址表）
+ */
+public interface LocalUuidIndex {
+
+    /**
+     * 查询UUID是否存在且未过期
+     *
+     * @param uuid 消息UUID
+     * @return true-命中，false-未命中
+     */
+    boolean contains(String uuid);
+
+    /**
+     * 记录UUID，过期时间从当前时刻起算
+     *
+     * @param uuid 消息UUID
+     */
+    void put(String uuid);
+
+    /**
+     * 按128位键记录UUID，指定过期时间戳（毫秒），用于从快照恢复
+     */
+    void put(long msb, long lsb, long expiresAt);
+
+    /**
+     * 移除UUID
+     *
+     * @param uuid 消息UUID
+     */
+    void invalidate(String uuid);
+
+    /**
+     * 遍历未过期的条目（用于快照）；逐个分段加锁复制后回调，不会长时间阻塞读写
+     */
+    void forEach(EntryVisitor visitor);
+
+    /**
+     * 当前条目数（可能包含尚未清理的过期条目）
+     */
+    int size();
+
+    long getHitCount();
+
+    long getMissCount();
+
+    long getEvictionCount();
+
+    /**
+     * 命中率，无查询时返回0
+     */
+    default double getHitRatio() {
+        long hits = getHitCount();
+        long total = hits + getMissCount();
+        return total == 0 ? 0.0 : hits * 1.0 / total;
+    }
+
+    /**
+     * 条目回调：128位键与过期时间戳（毫秒）
+     */
+    interface EntryVisitor {
+        void visit(long msb, long lsb, long expiresAt);
+    }
+}
@@ -0,0 +1,522 @@
+package com.example.kafka.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * 基于内存映射文件的本地去重存储
+ * 单节点部署时替代Redis：去重索引存放在本地文件中，通过mmap直接读写，没有网络往返，进程重启后索引仍然有效。
+ *
+ * 索引按写入时间分区（partitionSeconds），每个分区一个或多个段文件 segment-&lt;分区起始秒&gt;-&lt;序号&gt;.idx，
+ * 段文件是固定容量的线性探测表，条目布局与 {@link OffHeapUuidSet} 相同：[msb:8][lsb:8][expiresAt:8]，
+ * expiresAt=0 表示空槽，过期或删除的条目保留为墓碑。分区内的条目最晚在
+ * 分区结束 + redis.uuid.expire.seconds 时全部过期，此时整个段文件被删除，不需要逐条清理。
+ * 当前段装载率超过 0.75 时在同一分区内新建下一个序号的段。
+ *
+ * 新写入总是进入当前分区的段，查询依次检查所有未删除的段（去重窗口 / 分区长度 + 1 个）。
+ * 读操作共享读锁，写操作持有写锁，保证"检查并预占"的原子性。
+ * 数据写入页缓存即对其他进程可见，进程崩溃不丢失；后台按 forceIntervalMillis 刷盘，机器掉电最多丢失这一间隔内的写入。
+ */
+public class MappedFileDedupStore implements DedupStore {
+    private static final Logger logger = LoggerFactory.getLogger(MappedFileDedupStore.class);
+
+    private static final long MAGIC = 0x4445445550494458L;
+    private static final int VERSION = 1;
+    private static final int HEADER_BYTES = 64;
+    private static final int ENTRY_BYTES = 24;
+    private static final double MAX_LOAD = 0.75;
+    /** 单个段文件按int寻址，容量上限 2^26 个槽（约1.6GB） */
+    private static final int MAX_SLOTS = 1 << 26;
+    private static final Pattern SEGMENT_FILE = Pattern.compile("segment-(\\d+)-(\\d+)\\.idx");
+
+    private final File directory;
+    private final long partitionSeconds;
+    private final int slotsPerSegment;
+    private final long expireMillis;
+    private final long leaseMillis;
+    private final long expireSeconds;
+    /** 按分区起始时间、序号升序排列 */
+    private final List<Segment> segments = new ArrayList<>();
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private final ScheduledExecutorService maintainer;
+
+    /**
+     * @param directory           段文件目录
+     * @param partitionSeconds    分区长度（秒）
+     * @param slotsPerSegment     每个段文件的槽数（按2的幂向上取整）
+     * @param expireSeconds       去重窗口（秒），与 redis.uuid.expire.seconds 一致
+     * @param leaseSeconds        预占租约（秒），与 redis.uuid.lease.seconds 一致
+     * @param forceIntervalMillis 刷盘间隔（毫秒），0表示只在关闭时刷盘
+     */
+    public MappedFileDedupStore(File directory, long partitionSeconds, int slotsPerSegment, int expireSeconds,
+                                int leaseSeconds, long forceIntervalMillis) {
+        this.directory = directory;
+        this.partitionSeconds = Math.max(1, partitionSeconds);
+        this.slotsPerSegment = (int) Math.min(MAX_SLOTS, Long.highestOneBit(Math.max(2, slotsPerSegment) - 1L) << 1);
+        this.expireSeconds = expireSeconds;
+        this.expireMillis = TimeUnit.SECONDS.toMillis(expireSeconds);
+        this.leaseMillis = TimeUnit.SECONDS.toMillis(leaseSeconds);
+
+        if (!directory.isDirectory() && !directory.mkdirs()) {
+            throw new IllegalStateException("无法创建去重索引目录: " + directory.getAbsolutePath());
+        }
+        recover();
+
+        this.maintainer = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "mmap-dedup-maintainer");
+            thread.setDaemon(true);
+            return thread;
+        });
+        maintainer.scheduleWithFixedDelay(this::dropExpiredSegments, 60, 60, TimeUnit.SECONDS);
+        if (forceIntervalMillis > 0) {
+            maintainer.scheduleWithFixedDelay(this::force, forceIntervalMillis, forceIntervalMillis, TimeUnit.MILLISECONDS);
+        }
+        logger.info("本地内存映射去重存储已启动: dir={}, partitionSeconds={}, slotsPerSegment={}, 已恢复段: {}",
+            directory.getAbsolutePath(), this.partitionSeconds, this.slotsPerSegment, segments.size());
+    }
+
+    /**
+     * 从配置创建：dedup.mmap.*，去重窗口与租约沿用 redis.uuid.expire.seconds / redis.uuid.lease.seconds
+     */
+    public static MappedFileDedupStore fromProperties(Properties props) {
+        return new MappedFileDedupStore(new File(props.getProperty("dedup.mmap.dir", "data/dedup")),
+            Long.parseLong(props.getProperty("dedup.mmap.partitionSeconds", "86400")),
+            Integer.parseInt(props.getProperty("dedup.mmap.slotsPerSegment", "4194304")),
+            Integer.parseInt(props.getProperty("redis.uuid.expire.seconds", "604800")),
+            Integer.parseInt(props.getProperty("redis.uuid.lease.seconds", "30")),
+            Long.parseLong(props.getProperty("dedup.mmap.forceIntervalMillis", "1000")));
+    }
+
+    /**
+     * 启动时打开目录中仍在去重窗口内的段文件，删除已整体过期的段文件
+     */
+    private void recover() {
+        File[] files = directory.listFiles();
+        if (files == null) {
+            return;
+        }
+        long nowSeconds = TimeUnit.MILLISECONDS.toSeconds(System.currentTimeMillis());
+        for (File file : files) {
+            Matcher matcher = SEGMENT_FILE.matcher(file.getName());
+            if (!matcher.matches()) {
+                continue;
+            }
+            long partitionStart = Long.parseLong(matcher.group(1));
+            if (isExpired(partitionStart, nowSeconds)) {
+                deleteFile(file);
+                continue;
+            }
+            try {
+                segments.add(Segment.open(file));
+            } catch (IOException | IllegalStateException e) {
+                logger.warn("去重索引段文件无法打开，已跳过: {}, 原因: {}", file.getName(), e.getMessage());
+            }
+        }
+        segments.sort((a, b) -> a.partitionStart != b.partitionStart
+            ? Long.compare(a.partitionStart, b.partitionStart)
+            : Integer.compare(a.sequence, b.sequence));
+    }
+
+    private boolean isExpired(long partitionStart, long nowSeconds) {
+        return partitionStart + partitionSeconds + expireSeconds < nowSeconds;
+    }
+
+    @Override
+    public boolean isUuidExists(String uuid) {
+        long[] bits = UuidHashing.toBits(uuid);
+        lock.readLock().lock();
+        try {
+            return findLive(bits[0], bits[1], System.currentTimeMillis());
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public boolean saveUuid(String uuid) {
+        long[] bits = UuidHashing.toBits(uuid);
+        lock.writeLock().lock();
+        try {
+            long now = System.currentTimeMillis();
+            currentSegment(now).put(bits[0], bits[1], now + expireMillis, now);
+            return true;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public boolean reserveUuid(String uuid) {
+        long[] bits = UuidHashing.toBits(uuid);
+        lock.writeLock().lock();
+        try {
+            return reserve(bits, System.currentTimeMillis());
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private boolean reserve(long[] bits, long now) {
+        if (findLive(bits[0], bits[1], now)) {
+            return false;
+        }
+        currentSegment(now).put(bits[0], bits[1], now + leaseMillis, now);
+        return true;
+    }
+
+    @Override
+    public boolean releaseUuid(String uuid) {
+        return expireAll(uuid);
+    }
+
+    @Override
+    public boolean deleteUuid(String uuid) {
+        return expireAll(uuid);
+    }
+
+    /**
+     * 将所有段中该UUID的未过期条目标记为墓碑
+     */
+    private boolean expireAll(String uuid) {
+        long[] bits = UuidHashing.toBits(uuid);
+        lock.writeLock().lock();
+        try {
+            long now = System.currentTimeMillis();
+            boolean expired = false;
+            for (Segment segment : segments) {
+                expired |= segment.expire(bits[0], bits[1], now);
+            }
+            return expired;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public Map<String, Boolean> existsBatch(Collection<String> uuids) {
+        Map<String, Boolean> result = new LinkedHashMap<>();
+        if (uuids == null || uuids.isEmpty()) {
+            return result;
+        }
+        lock.readLock().lock();
+        try {
+            long now = System.currentTimeMillis();
+            for (String uuid : uuids) {
+                long[] bits = UuidHashing.toBits(uuid);
+                result.put(uuid, findLive(bits[0], bits[1], now));
+            }
+            return result;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public Map<String, Boolean> reserveBatch(Collection<String> uuids) {
+        Map<String, Boolean> result = new LinkedHashMap<>();
+        if (uuids == null || uuids.isEmpty()) {
+            return result;
+        }
+        lock.writeLock().lock();
+        try {
+            long now = System.currentTimeMillis();
+            for (String uuid : uuids) {
+                if (!result.containsKey(uuid)) {
+                    result.put(uuid, reserve(UuidHashing.toBits(uuid), now));
+                }
+            }
+            return result;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public int saveBatch(Map<String, Long> uuidValues) {
+        if (uuidValues == null || uuidValues.isEmpty()) {
+            return 0;
+        }
+        lock.writeLock().lock();
+        try {
+            long now = System.currentTimeMillis();
+            for (String uuid : uuidValues.keySet()) {
+                long[] bits = UuidHashing.toBits(uuid);
+                currentSegment(now).put(bits[0], bits[1], now + expireMillis, now);
+            }
+            return uuidValues.size();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private boolean findLive(long msb, long lsb, long now) {
+        // 最新的段最可能命中，倒序查找
+        for (int i = segments.size() - 1; i >= 0; i--) {
+            if (segments.get(i).find(msb, lsb, now) >= 0) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * 当前分区的可写段，分区切换或当前段已满时新建（调用方持有写锁）
+     */
+    private Segment currentSegment(long now) {
+        long partitionStart = TimeUnit.MILLISECONDS.toSeconds(now) / partitionSeconds * partitionSeconds;
+        Segment last = segments.isEmpty() ? null : segments.get(segments.size() - 1);
+        if (last != null && last.partitionStart == partitionStart && !last.isFull()) {
+            return last;
+        }
+        int sequence = last != null && last.partitionStart == partitionStart ? last.sequence + 1 : 0;
+        File file = new File(directory, "segment-" + partitionStart + "-" + sequence + ".idx");
+        try {
+            Segment segment = Segment.create(file, partitionStart, sequence, slotsPerSegment);
+            segments.add(segment);
+            logger.info("新建去重索引段: {}", file.getName());
+            return segment;
+        } catch (IOException e) {
+            logger.error("新建去重索引段失败: {}", file.getAbsolutePath(), e);
+            throw new RuntimeException("本地去重索引写入失败", e);
+        }
+    }
+
+    /**
+     * 删除整体过期的段（分区结束 + 去重窗口之前的段），由后台线程每分钟调用
+     */
+    void dropExpiredSegments() {
+        lock.writeLock().lock();
+        try {
+            long nowSeconds = TimeUnit.MILLISECONDS.toSeconds(System.currentTimeMillis());
+            Iterator<Segment> iterator = segments.iterator();
+            while (iterator.hasNext()) {
+                Segment segment = iterator.next();
+                if (isExpired(segment.partitionStart, nowSeconds)) {
+                    iterator.remove();
+                    deleteFile(segment.file);
+                    logger.info("去重索引段已过期并删除: {}", segment.file.getName());
+                }
+            }
+        } catch (Exception e) {
+            logger.warn("清理过期去重索引段失败: {}", e.getMessage());
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private void force() {
+        lock.readLock().lock();
+        try {
+            for (Segment segment : segments) {
+                segment.buffer.force();
+            }
+        } catch (Exception e) {
+            logger.warn("去重索引刷盘失败: {}", e.getMessage());
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private static void deleteFile(File file) {
+        if (!file.delete() && file.exists()) {
+            logger.warn("去重索引段文件删除失败: {}", file.getAbsolutePath());
+        }
+    }
+
+    /**
+     * 当前段数
+     */
+    public int getSegmentCount() {
+        lock.readLock().lock();
+        try {
+            return segments.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * 所有段已占用的槽数（含墓碑）
+     */
+    public long getOccupiedSlots() {
+        lock.readLock().lock();
+        try {
+            long occupied = 0;
+            for (Segment segment : segments) {
+                occupied += segment.occupied;
+            }
+            return occupied;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "MappedFileDedupStore{" +
+                "dir=" + directory.getAbsolutePath() +
+                ", segments=" + getSegmentCount() +
+                ", occupiedSlots=" + getOccupiedSlots() +
+                '}';
+    }
+
+    @Override
+    public void close() {
+        maintainer.shutdownNow();
+        force();
+        logger.info("本地内存映射去重存储已关闭: {}", this);
+    }
+
+    /**
+     * 单个段文件：64字节文件头 + 固定容量的线性探测表，调用方负责加锁
+     * 文件头：[magic:8][version:4][capacity:4][partitionStart:8][sequence:4][occupied:4]
+     */
+    private static final class Segment {
+        private final File file;
+        private final MappedByteBuffer buffer;
+        private final long partitionStart;
+        private final int sequence;
+        private final int capacity;
+        private int occupied;
+
+        private Segment(File file, MappedByteBuffer buffer, long partitionStart, int sequence, int capacity, int occupied) {
+            this.file = file;
+            this.buffer = buffer;
+            this.partitionStart = partitionStart;
+            this.sequence = sequence;
+            this.capacity = capacity;
+            this.occupied = occupied;
+        }
+
+        static Segment create(File file, long partitionStart, int sequence, int capacity) throws IOException {
+            MappedByteBuffer buffer = map(file, HEADER_BYTES + (long) capacity * ENTRY_BYTES);
+            buffer.putLong(0, MAGIC);
+            buffer.putInt(8, VERSION);
+            buffer.putInt(12, capacity);
+            buffer.putLong(16, partitionStart);
+            buffer.putInt(24, sequence);
+            buffer.putInt(28, 0);
+            return new Segment(file, buffer, partitionStart, sequence, capacity, 0);
+        }
+
+        static Segment open(File file) throws IOException {
+            MappedByteBuffer buffer = map(file, file.length());
+            if (file.length() < HEADER_BYTES || buffer.getLong(0) != MAGIC || buffer.getInt(8) != VERSION) {
+                throw new IllegalStateException("文件头无效");
+            }
+            int capacity = buffer.getInt(12);
+            if (file.length() != HEADER_BYTES + (long) capacity * ENTRY_BYTES) {
+                throw new IllegalStateException("文件长度与容量不符");
+            }
+            return new Segment(file, buffer, buffer.getLong(16), buffer.getInt(24), capacity, buffer.getInt(28));
+        }
+
+        /**
+         * 映射文件；新文件扩展为稀疏文件，未写入的槽不占用磁盘
+         */
+        private static MappedByteBuffer map(File file, long size) throws IOException {
+            try (RandomAccessFile raf = new RandomAccessFile(file, "rw");
+                 FileChannel channel = raf.getChannel()) {
+                // 关闭通道后映射仍然有效
+                return channel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+            }
+        }
+
+        boolean isFull() {
+            return occupied + 1 > capacity * MAX_LOAD;
+        }
+
+        private int offset(int slot) {
+            return HEADER_BYTES + slot * ENTRY_BYTES;
+        }
+
+        private int home(long msb, long lsb) {
+            return (int) UuidHashing.mix64(msb * 31 + lsb) & (capacity - 1);
+        }
+
+        /**
+         * 查找未过期的条目，返回槽位，未找到返回-1
+         */
+        int find(long msb, long lsb, long now) {
+            int slot = home(msb, lsb);
+            for (int probes = 0; probes < capacity; probes++) {
+                int offset = offset(slot);
+                long expiresAt = buffer.getLong(offset + 16);
+                if (expiresAt == 0) {
+                    return -1;
+                }
+                if (buffer.getLong(offset) == msb && buffer.getLong(offset + 8) == lsb) {
+                    return expiresAt > now ? slot : -1;
+                }
+                slot = (slot + 1) & (capacity - 1);
+            }
+            return -1;
+        }
+
+        /**
+         * 写入或更新条目；键已存在时只更新过期时间，否则优先复用探测链上的过期槽
+         */
+        void put(long msb, long lsb, long expiresAt, long now) {
+            int slot = home(msb, lsb);
+            int reusable = -1;
+            for (int probes = 0; probes < capacity; probes++) {
+                int offset = offset(slot);
+                long existing = buffer.getLong(offset + 16);
+                if (existing == 0) {
+                    break;
+                }
+                if (buffer.getLong(offset) == msb && buffer.getLong(offset + 8) == lsb) {
+                    buffer.putLong(offset + 16, expiresAt);
+                    return;
+                }
+                if (existing <= now && reusable < 0) {
+                    reusable = slot;
+                }
+                slot = (slot + 1) & (capacity - 1);
+            }
+
+            if (reusable >= 0) {
+                slot = reusable;
+            } else {
+                occupied++;
+                buffer.putInt(28, occupied);
+            }
+            int offset = offset(slot);
+            buffer.putLong(offset, msb);
+            buffer.putLong(offset + 8, lsb);
+            // 过期时间最后写入：它非0才表示槽位已占用
+            buffer.putLong(offset + 16, expiresAt);
+        }
+
+        /**
+         * 将未过期的条目标记为墓碑（保留键，不破坏探测链）
+         */
+        boolean expire(long msb, long lsb, long now) {
+            int slot = find(msb, lsb, now);
+            if (slot < 0) {
+                return false;
+            }
+            buffer.putLong(offset(slot) + 16, 1L);
+            return true;
+        }
+    }
+}
@@ -4,26 +4,209 @@ import com.example.kafka.model.Message;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
 /**
  * 消息发送主服务类
- * 实现消息去重逻辑：发送前检查Redis，发送后写入Redis
+ * 实现消息去重逻辑：发送前在Redis中预占UUID，发送后确认写入Redis
  */
 public class MessageService {
     private static final Logger logger = LoggerFactory.getLogger(MessageService.class);
 
-    private RedisService redisService;
+    private DedupStore dedupStore;
     private KafkaProducerService kafkaProducerService;
 
+    /**
+     * 本地布隆过滤器（可选）：仅适用于本节点是其UUID空间唯一写入方的部署
+     */
+    private RotatingBloomFilter bloomFilter;
+    private long bloomWarmupMillis;
+    /**
+     * 经布隆过滤器认领、跳过Redis预占且发送结果未定的去重键，期间同一键的并发发送判定为重复（相当于本地租约）
+     */
+    private final Set<String> bloomInFlight = ConcurrentHashMap.newKeySet();
+    private final AtomicLong bloomSkippedCount = new AtomicLong();
+    private final AtomicLong bloomFalsePositiveCount = new AtomicLong();
+
+    /**
+     * Redis熔断器与降级本地去重（可选）：熔断打开或Redis调用失败时，去重改用本地有界索引，
+     * 已发送但未写入Redis的UUID进入待补写队列，熔断关闭后批量补写回Redis
+     */
+    private RedisCircuitBreaker circuitBreaker;
+    private LocalUuidIndex degradedIndex;
+    private Map<String, Long> pendingReconcile;
+    private int pendingMaxSize;
+    private int reconcileBatchSize;
+    private ScheduledExecutorService reconciler;
+    private final AtomicLong degradedCount = new AtomicLong();
+    private final AtomicLong reconciledCount = new AtomicLong();
+    private final AtomicLong pendingDroppedCount = new AtomicLong();
+
+    /**
+     * 异步批量写入（可选）：Kafka发送成功后的保存不再同步等待Redis
+     */
+    private WriteBehindUuidWriter writeBehind;
+    private long writeBehindCloseTimeoutMillis;
+
+    /**
+     * 内容指纹去重（可选）：上游重放时常为相同内容重新生成UUID，启用后以内容哈希代替UUID作为去重键
+     */
+    private boolean contentDedup;
+
     public MessageService() {
-        this.redisService = new RedisService();
+        Properties props = loadProperties();
+        this.dedupStore = DedupStoreFactory.create(props);
+        this.kafkaProducerService = new KafkaProducerService();
+        initLocalDedup(props);
+        initWriteBehind(props);
+        initContentDedup(props);
+    }
+
+    /**
+     * 使用指定的去重存储（例如压力测试中的故障注入装饰器）
+     *
+     * @param dedupStore 去重存储
+     */
+    public MessageService(DedupStore dedupStore) {
+        this.dedupStore = dedupStore;
         this.kafkaProducerService = new KafkaProducerService();
+        Properties props = loadProperties();
+        initLocalDedup(props);
+        initWriteBehind(props);
+        initContentDedup(props);
+    }
+
+    /**
+     * 加载配置文件
+     */
+    private Properties loadProperties() {
+        Properties props = new Properties();
+        try (InputStream input = getClass().getClassLoader().getResourceAsStream("application.properties")) {
+            if (input == null) {
+                logger.error("无法找到配置文件 application.properties");
+                throw new RuntimeException("配置文件不存在");
+            }
+            props.load(input);
+            return props;
+        } catch (IOException e) {
+            logger.error("加载配置文件失败", e);
+            throw new RuntimeException("加载配置文件失败", e);
+        }
+    }
+
+    /**
+     * 初始化本地去重组件
+     */
+    private void initLocalDedup(Properties props) {
+        if (Boolean.parseBoolean(props.getProperty("message.dedup.bloom.enabled", "false"))) {
+            long expireSeconds = Long.parseLong(props.getProperty("redis.uuid.expire.seconds", "604800"));
+            long expectedInsertions = Long.parseLong(props.getProperty("message.dedup.bloom.expectedInsertions", "1000000"));
+            double fpp = Double.parseDouble(props.getProperty("message.dedup.bloom.fpp", "0.01"));
+            int generations = Integer.parseInt(props.getProperty("message.dedup.bloom.generations", "8"));
+            // 重启后过滤器为空，预热结束前不信任其判定，否则重启前发送过的消息重试时会跳过Redis预占而被重复发送
+            long warmupSeconds = Long.parseLong(
+                props.getProperty("message.dedup.bloom.warmupSeconds", String.valueOf(expireSeconds)));
+            if (warmupSeconds <= 0) {
+                throw new IllegalArgumentException("message.dedup.bloom.warmupSeconds 必须大于0（建议等于 redis.uuid.expire.seconds）");
+            }
+            if (warmupSeconds < expireSeconds) {
+                logger.warn("布隆过滤器预热时间 {}秒 短于去重窗口 {}秒，重启前发送过的消息在预热结束后重试可能被重复发送",
+                    warmupSeconds, expireSeconds);
+            }
+            this.bloomWarmupMillis = TimeUnit.SECONDS.toMillis(warmupSeconds);
+            this.bloomFilter = new RotatingBloomFilter(expectedInsertions, fpp,
+                TimeUnit.SECONDS.toMillis(expireSeconds), generations);
+            logger.info("本地布隆过滤器已启用: expectedInsertions={}, fpp={}, generations={}, warmup={}ms",
+                expectedInsertions, fpp, generations, bloomWarmupMillis);
+        }
+
+        if (Boolean.parseBoolean(props.getProperty("message.circuit.enabled", "false"))) {
+            this.circuitBreaker = new RedisCircuitBreaker(
+                Integer.parseInt(props.getProperty("message.circuit.windowSize", "100")),
+                Integer.parseInt(props.getProperty("message.circuit.minimumCalls", "20")),
+                Double.parseDouble(props.getProperty("message.circuit.failureRateThreshold", "0.5")),
+                Long.parseLong(props.getProperty("message.circuit.slowCallMillis", "500")),
+                Double.parseDouble(props.getProperty("message.circuit.slowCallPercentile", "0.99")),
+                Long.parseLong(props.getProperty("message.circuit.openMillis", "5000")),
+                Integer.parseInt(props.getProperty("message.circuit.halfOpenCalls", "5")));
+            this.pendingMaxSize = Integer.parseInt(props.getProperty("message.circuit.localMaxSize", "100000"));
+            this.reconcileBatchSize = Integer.parseInt(props.getProperty("message.circuit.reconcileBatchSize", "500"));
+            long expireSeconds = Long.parseLong(props.getProperty("redis.uuid.expire.seconds", "604800"));
+            this.degradedIndex = new UuidNearCache(pendingMaxSize, expireSeconds);
+            this.pendingReconcile = new LinkedHashMap<>();
+
+            long reconcileIntervalMillis = Long.parseLong(props.getProperty("message.circuit.reconcileIntervalMillis", "1000"));
+            this.reconciler = Executors.newSingleThreadScheduledExecutor(r -> {
+                Thread thread = new Thread(r, "dedup-reconciler");
+                thread.setDaemon(true);
+                return thread;
+            });
+            reconciler.scheduleWithFixedDelay(this::reconcile, reconcileIntervalMillis, reconcileIntervalMillis,
+                TimeUnit.MILLISECONDS);
+            logger.info("Redis熔断器已启用: 本地降级索引上限={}, 补写间隔={}ms", pendingMaxSize, reconcileIntervalMillis);
+        }
+    }
+
+    /**
+     * 初始化异步批量写入
+     */
+    private void initWriteBehind(Properties props) {
+        if (Boolean.parseBoolean(props.getProperty("message.dedup.writeBehind.enabled", "false"))) {
+            this.writeBehind = new WriteBehindUuidWriter(dedupStore,
+                Integer.parseInt(props.getProperty("message.dedup.writeBehind.queueSize", "100000")),
+                Integer.parseInt(props.getProperty("message.dedup.writeBehind.batchSize", "500")),
+                Long.parseLong(props.getProperty("message.dedup.writeBehind.flushMillis", "10")));
+            this.writeBehindCloseTimeoutMillis =
+                Long.parseLong(props.getProperty("message.dedup.writeBehind.closeTimeoutMillis", "10000"));
+        }
+    }
+
+    /**
+     * 初始化内容指纹去重
+     */
+    private void initContentDedup(Properties props) {
+        this.contentDedup = Boolean.parseBoolean(props.getProperty("message.dedup.content.enabled", "false"));
+        if (contentDedup) {
+            logger.info("内容指纹去重已启用: 去重键为消息内容的128位MurmurHash3");
+        }
+    }
+
+    /**
+     * 消息的去重键：默认为消息UUID；启用内容指纹时为内容的128位MurmurHash3，格式化为UUID字符串，
+     * 因此沿用UUID的存储布局、批量写入与过期时间。内容为空的消息仍按UUID去重。
+     */
+    private String dedupKey(Message message) {
+        if (!contentDedup || message.getContent() == null) {
+            return message.getUuid();
+        }
+        long[] hash = UuidHashing.murmur3x64_128(message.getContent().getBytes(StandardCharsets.UTF_8));
+        return new UUID(hash[0], hash[1]).toString();
     }
 
     /**
      * 发送消息（带去重检查）
-     * 1. 先查询Redis确认消息UUID是否已存在
-     * 2. 如果不存在，发送到Kafka
-     * 3. 发送成功后，将UUID写入Redis
+     * 1. 在Redis中原子预占UUID（SET NX EX 短租约），预占失败说明消息已存在或正在被发送
+     * 2. 预占成功后发送到Kafka，发送失败则释放租约
+     * 3. 发送成功后，将UUID的过期时间延长为正式去重窗口
      *
      * @param message 消息对象
      * @return true-发送成功，false-发送失败或消息已存在
@@ -35,30 +218,65 @@ public class MessageService {
         }
 
         String uuid = message.getUuid();
+        String key = dedupKey(message);
         logger.info("准备发送消息 - UUID: {}, Content: {}", uuid, message.getContent());
 
+        boolean certainlyNew = false;
         try {
-            // 1. 检查Redis中是否已存在该UUID
-            if (redisService.isUuidExists(uuid)) {
-                logger.warn("消息已存在，跳过发送 - UUID: {}", uuid);
+            // 0. 本地布隆过滤器判定一定未发送过时原子认领该键，跳过Redis预占；
+            // 认领的键在发送结果确定前保留在 bloomInFlight 中，同一键的并发发送判定为重复
+            certainlyNew = claimBloom(key);
+            if (certainlyNew) {
+                bloomSkippedCount.incrementAndGet();
+                logger.debug("布隆过滤器判定为新消息，跳过Redis预占 - UUID: {}", uuid);
+            } else if (bloomInFlight.contains(key)) {
+                logger.warn("消息正在发送中，跳过发送 - UUID: {}", uuid);
                 return false;
+            } else {
+                // 1. 原子预占UUID，同时完成存在性检查；熔断打开或Redis调用失败时改用本地去重
+                if (!allowRedis()) {
+                    return sendDegraded(message);
+                }
+                boolean reserved;
+                try {
+                    reserved = guarded(() -> dedupStore.reserveUuid(key));
+                } catch (RuntimeException e) {
+                    if (circuitBreaker == null) {
+                        throw e;
+                    }
+                    logger.warn("Redis预占失败，改用本地去重 - UUID: {}, 原因: {}", uuid, e.getMessage());
+                    return sendDegraded(message);
+                }
+                if (!reserved) {
+                    logger.warn("消息已存在，跳过发送 - UUID: {}", uuid);
+                    return false;
+                }
+                if (isBloomTrusted()) {
+                    // 布隆过滤器判定"可能存在"，但Redis确认是新消息
+                    bloomFalsePositiveCount.incrementAndGet();
+                }
             }
 
             // 2. 发送消息到Kafka
             boolean sendSuccess = kafkaProducerService.sendMessage(message);
             if (!sendSuccess) {
+                // 布隆认领的键无法从过滤器删除，重试时过滤器判定"可能存在"，改走Redis预占
                 logger.error("Kafka发送失败 - UUID: {}", uuid);
+                if (!certainlyNew) {
+                    releaseQuietly(key);
+                }
                 return false;
             }
 
-            // 3. Kafka发送成功后，将UUID写入Redis
-            boolean saveSuccess = redisService.saveUuid(uuid);
+            // 3. Kafka发送成功后，将租约延长为正式过期时间
+            boolean saveSuccess = confirmSaved(key);
             if (!saveSuccess) {
                 logger.error("UUID写入Redis失败 - UUID: {}", uuid);
-                // 注意：此时消息已发送到Kafka，但Redis记录失败
+                // 注意：此时消息已发送到Kafka，但Redis记录失败（租约到期后可能被重复发送）
                 // 根据业务需求决定是否需要补偿机制
                 return false;
             }
+            recordSaved(key);
 
             logger.info("消息发送完成 - UUID: {}", uuid);
             return true;
@@ -66,6 +284,339 @@ public class MessageService {
         } catch (Exception e) {
             logger.error("发送消息过程中发生异常 - UUID: {}", uuid, e);
             return false;
+        } finally {
+            if (certainlyNew) {
+                bloomInFlight.remove(key);
+            }
+        }
+    }
+
+    /**
+     * 批量发送消息（带去重检查）
+     * 整批UUID通过一次 {@link DedupStore#reserveBatch(java.util.Collection)} 完成存在性检查与预占，
+     * 替代逐条的检查与写入，检查与写入之间也不存在其他发送方插入的窗口；
+     * 预占成功的消息逐条发送到Kafka，发送成功的UUID通过一次 saveBatch 延长为正式去重窗口。
+     *
+     * @param messages 消息列表
+     * @return UUID到是否发送成功的映射，顺序与入参一致；批内去重键重复的消息只发送第一条
+     */
+    public Map<String, Boolean> sendMessages(List<Message> messages) {
+        Map<String, Boolean> result = new LinkedHashMap<>();
+        if (messages == null || messages.isEmpty()) {
+            return result;
+        }
+
+        // 去重键 -> 消息
+        Map<String, Message> unique = new LinkedHashMap<>();
+        for (Message message : messages) {
+            if (message == null || message.getUuid() == null) {
+                logger.error("消息对象或UUID为空");
+                continue;
+            }
+            if (unique.putIfAbsent(dedupKey(message), message) != null) {
+                logger.warn("批内重复消息，只发送第一条 - UUID: {}", message.getUuid());
+            }
+            result.put(message.getUuid(), Boolean.FALSE);
+        }
+        logger.info("准备批量发送消息: {} 条", unique.size());
+
+        // 0. 本地布隆过滤器判定一定未发送过的UUID，原子认领后跳过Redis预占；其他线程正在发送的键判定为重复
+        Set<String> certainlyNew = new HashSet<>();
+        Set<String> toReserve = new LinkedHashSet<>();
+        for (String key : unique.keySet()) {
+            if (claimBloom(key)) {
+                certainlyNew.add(key);
+                bloomSkippedCount.incrementAndGet();
+            } else if (bloomInFlight.contains(key)) {
+                logger.warn("消息正在发送中，跳过发送 - UUID: {}", unique.get(key).getUuid());
+            } else {
+                toReserve.add(key);
+            }
+        }
+        try {
+            return sendReserved(unique, certainlyNew, toReserve, result);
+        } finally {
+            bloomInFlight.removeAll(certainlyNew);
+        }
+    }
+
+    /**
+     * {@link #sendMessages(List)} 的预占、发送与确认阶段
+     */
+    private Map<String, Boolean> sendReserved(Map<String, Message> unique, Set<String> certainlyNew,
+                                              Set<String> toReserve, Map<String, Boolean> result) {
+        // 1. 一次往返批量预占；熔断打开或Redis调用失败时逐条改用本地去重
+        Map<String, Boolean> reserved = Collections.emptyMap();
+        if (!toReserve.isEmpty()) {
+            boolean degraded = !allowRedis();
+            if (!degraded) {
+                try {
+                    reserved = guarded(() -> dedupStore.reserveBatch(toReserve));
+                } catch (RuntimeException e) {
+                    if (circuitBreaker == null) {
+                        logger.error("批量预占UUID失败，本批 {} 条消息未发送", toReserve.size(), e);
+                        toReserve.clear();
+                    } else {
+                        logger.warn("Redis批量预占失败，改用本地去重, 原因: {}", e.getMessage());
+                        degraded = true;
+                    }
+                }
+            }
+            if (degraded) {
+                for (String key : toReserve) {
+                    Message message = unique.get(key);
+                    result.put(message.getUuid(), sendDegraded(message));
+                }
+                toReserve.clear();
+            }
+        }
+
+        // 2. 发送到Kafka
+        List<String> sent = new ArrayList<>(unique.size());
+        for (Map.Entry<String, Message> entry : unique.entrySet()) {
+            String key = entry.getKey();
+            String uuid = entry.getValue().getUuid();
+            boolean isNew = certainlyNew.contains(key);
+            if (!isNew && toReserve.contains(key)) {
+                if (!Boolean.TRUE.equals(reserved.get(key))) {
+                    logger.warn("消息已存在，跳过发送 - UUID: {}", uuid);
+                    continue;
+                }
+                if (isBloomTrusted()) {
+                    bloomFalsePositiveCount.incrementAndGet();
+                }
+            } else if (!isNew) {
+                continue;
+            }
+
+            boolean sendSuccess;
+            try {
+                sendSuccess = kafkaProducerService.sendMessage(entry.getValue());
+            } catch (Exception e) {
+                logger.error("发送消息过程中发生异常 - UUID: {}", uuid, e);
+                sendSuccess = false;
+            }
+            if (sendSuccess) {
+                sent.add(key);
+            } else {
+                logger.error("Kafka发送失败 - UUID: {}", uuid);
+                if (!isNew) {
+                    releaseQuietly(key);
+                }
+            }
+        }
+
+        // 3. Kafka发送成功后，整批将租约延长为正式过期时间
+        if (confirmSavedBatch(sent)) {
+            for (String key : sent) {
+                recordSaved(key);
+                result.put(unique.get(key).getUuid(), Boolean.TRUE);
+            }
+        }
+        logger.info("批量发送完成: {}/{} 条", sent.size(), unique.size());
+        return result;
+    }
+
+    /**
+     * 批量版的 {@link #confirmSaved(String)}：异步写入队列放不下的UUID通过一次 saveBatch 写入
+     */
+    private boolean confirmSavedBatch(List<String> uuids) {
+        Map<String, Long> batch = new LinkedHashMap<>();
+        long now = System.currentTimeMillis();
+        for (String uuid : uuids) {
+            if (writeBehind == null || !writeBehind.enqueue(uuid)) {
+                batch.put(uuid, now);
+            }
+        }
+        if (batch.isEmpty()) {
+            return true;
+        }
+        if (!allowRedis()) {
+            batch.keySet().forEach(this::deferSave);
+            return true;
+        }
+        try {
+            guarded(() -> dedupStore.saveBatch(batch));
+            return true;
+        } catch (RuntimeException e) {
+            if (circuitBreaker == null) {
+                // 消息已发送到Kafka，但Redis记录失败（租约到期后可能被重复发送）
+                logger.error("UUID批量写入Redis失败, 数量: {}", batch.size(), e);
+                return false;
+            }
+            logger.warn("UUID批量写入Redis失败，稍后补写, 数量: {}, 原因: {}", batch.size(), e.getMessage());
+            batch.keySet().forEach(this::deferSave);
+            return true;
+        }
+    }
+
+    /**
+     * 熔断器打开时的发送路径：本地有界索引去重，发送成功后进入待补写队列
+     * 只能识别本进程内的重复，与其他节点之间的去重在熔断期间失效
+     */
+    private boolean sendDegraded(Message message) {
+        String uuid = message.getUuid();
+        String key = dedupKey(message);
+        synchronized (degradedIndex) {
+            if (degradedIndex.contains(key) || isPendingReconcile(key)) {
+                logger.warn("消息已存在（本地降级去重），跳过发送 - UUID: {}", uuid);
+                return false;
+            }
+            degradedIndex.put(key);
+        }
+
+        boolean sendSuccess = kafkaProducerService.sendMessage(message);
+        if (!sendSuccess) {
+            logger.error("Kafka发送失败 - UUID: {}", uuid);
+            degradedIndex.invalidate(key);
+            return false;
+        }
+        deferSave(key);
+        recordSaved(key);
+        degradedCount.incrementAndGet();
+        logger.info("消息发送完成（本地降级去重，待补写Redis） - UUID: {}", uuid);
+        return true;
+    }
+
+    /**
+     * Kafka发送成功后写入Redis；启用异步写入时只入队，队列已满才同步写入；
+     * 熔断打开或写入失败时进入待补写队列，消息仍视为发送成功
+     */
+    private boolean confirmSaved(String uuid) {
+        if (writeBehind != null && writeBehind.enqueue(uuid)) {
+            return true;
+        }
+        if (!allowRedis()) {
+            deferSave(uuid);
+            return true;
+        }
+        try {
+            return guarded(() -> dedupStore.saveUuid(uuid));
+        } catch (RuntimeException e) {
+            if (circuitBreaker == null) {
+                throw e;
+            }
+            logger.warn("UUID写入Redis失败，稍后补写 - UUID: {}, 原因: {}", uuid, e.getMessage());
+            deferSave(uuid);
+            return true;
+        }
+    }
+
+    private boolean allowRedis() {
+        return circuitBreaker == null || circuitBreaker.allowRequest();
+    }
+
+    /**
+     * 调用Redis并向熔断器报告结果与耗时
+     */
+    private <T> T guarded(Supplier<T> call) {
+        if (circuitBreaker == null) {
+            return call.get();
+        }
+        long start = System.nanoTime();
+        try {
+            T result = call.get();
+            circuitBreaker.onSuccess(System.nanoTime() - start);
+            return result;
+        } catch (RuntimeException e) {
+            circuitBreaker.onFailure(System.nanoTime() - start);
+            throw e;
+        }
+    }
+
+    private void deferSave(String uuid) {
+        degradedIndex.put(uuid);
+        synchronized (pendingReconcile) {
+            pendingReconcile.put(uuid, System.currentTimeMillis());
+            if (pendingReconcile.size() > pendingMaxSize) {
+                // 队列已满，丢弃最早的记录（该UUID在本地索引过期后可能被其他节点重复发送）
+                Iterator<String> eldest = pendingReconcile.keySet().iterator();
+                eldest.next();
+                eldest.remove();
+                pendingDroppedCount.incrementAndGet();
+            }
+        }
+    }
+
+    private boolean isPendingReconcile(String uuid) {
+        synchronized (pendingReconcile) {
+            return pendingReconcile.containsKey(uuid);
+        }
+    }
+
+    /**
+     * 熔断关闭时，将待补写队列分批写回Redis
+     */
+    private void reconcile() {
+        while (circuitBreaker.getState() == RedisCircuitBreaker.State.CLOSED) {
+            Map<String, Long> batch = new LinkedHashMap<>();
+            synchronized (pendingReconcile) {
+                for (Map.Entry<String, Long> entry : pendingReconcile.entrySet()) {
+                    batch.put(entry.getKey(), entry.getValue());
+                    if (batch.size() >= reconcileBatchSize) {
+                        break;
+                    }
+                }
+            }
+            if (batch.isEmpty()) {
+                return;
+            }
+
+            try {
+                guarded(() -> dedupStore.saveBatch(batch));
+            } catch (RuntimeException e) {
+                logger.warn("补写UUID到Redis失败，稍后重试: {}", e.getMessage());
+                return;
+            }
+            List<String> done = new ArrayList<>(batch.keySet());
+            synchronized (pendingReconcile) {
+                for (String uuid : done) {
+                    // 补写期间重新进入队列的UUID（时间戳已变化）保留到下一轮
+                    pendingReconcile.remove(uuid, batch.get(uuid));
+                }
+            }
+            reconciledCount.addAndGet(done.size());
+            logger.info("已补写 {} 个UUID到Redis", done.size());
+        }
+    }
+
+    private boolean isBloomTrusted() {
+        return bloomFilter != null && bloomFilter.getAgeMillis() >= bloomWarmupMillis;
+    }
+
+    /**
+     * 布隆过滤器原子认领：过滤器判定一定未发送过时插入该键并返回true，调用方跳过Redis预占直接发送，
+     * 发送结束后须将该键移出 bloomInFlight。同一键的并发调用最多只有一个得到true。
+     * 过滤器中的条目无法删除，发送失败后的重试由过滤器判定为"可能存在"，改走Redis预占。
+     */
+    private boolean claimBloom(String key) {
+        if (!isBloomTrusted() || !bloomInFlight.add(key)) {
+            return false;
+        }
+        if (bloomFilter.putIfAbsent(key)) {
+            return true;
+        }
+        bloomInFlight.remove(key);
+        return false;
+    }
+
+    /**
+     * 记录本进程已保存的UUID
+     */
+    private void recordSaved(String uuid) {
+        if (bloomFilter != null) {
+            bloomFilter.put(uuid);
+        }
+    }
+
+    /**
+     * 释放UUID租约，释放失败只记录日志（租约到期后会自动失效）
+     */
+    private void releaseQuietly(String uuid) {
+        try {
+            dedupStore.releaseUuid(uuid);
+        } catch (Exception e) {
+            logger.warn("释放UUID租约失败，等待租约自动过期 - UUID: {}", uuid);
         }
     }
 
@@ -94,7 +645,10 @@ public class MessageService {
             }
 
             // 写入Redis
-            redisService.saveUuid(uuid);
+            String key = dedupKey(message);
+            if (dedupStore.saveUuid(key)) {
+                recordSaved(key);
+            }
             return true;
 
         } catch (Exception e) {
@@ -103,25 +657,112 @@ public class MessageService {
         }
     }
 
+    /**
+     * 检查消息是否已发送（按去重键：启用内容指纹时为内容哈希）
+     *
+     * @param message 消息对象
+     * @return true-已发送，false-未发送
+     */
+    public boolean isMessageSent(Message message) {
+        return isMessageSent(dedupKey(message));
+    }
+
     /**
      * 检查消息是否已发送
+     * 启用内容指纹去重时，记录的是内容哈希而非UUID，应使用 {@link #isMessageSent(Message)}
      *
      * @param uuid 消息UUID
      * @return true-已发送，false-未发送
      */
     public boolean isMessageSent(String uuid) {
-        return redisService.isUuidExists(uuid);
+        if (isBloomTrusted() && !bloomFilter.mightContain(uuid)) {
+            return false;
+        }
+        if (!allowRedis()) {
+            return degradedIndex.contains(uuid) || isPendingReconcile(uuid);
+        }
+        return guarded(() -> dedupStore.isUuidExists(uuid));
+    }
+
+    /**
+     * 获取本地布隆过滤器（用于读取估算误判率和内存占用），未启用时返回null
+     */
+    public RotatingBloomFilter getBloomFilter() {
+        return bloomFilter;
+    }
+
+    /**
+     * 布隆过滤器判定为新消息、跳过Redis预占的次数
+     */
+    public long getBloomSkippedCount() {
+        return bloomSkippedCount.get();
+    }
+
+    /**
+     * 实测误判率：真正的新消息中，被布隆过滤器判定为"可能存在"的比例
+     */
+    public double getBloomObservedFalsePositiveRate() {
+        long falsePositives = bloomFalsePositiveCount.get();
+        long total = falsePositives + bloomSkippedCount.get();
+        return total == 0 ? 0.0 : falsePositives * 1.0 / total;
+    }
+
+    /**
+     * 获取Redis熔断器，未启用时返回null
+     */
+    public RedisCircuitBreaker getCircuitBreaker() {
+        return circuitBreaker;
+    }
+
+    /**
+     * 等待补写到Redis的UUID数量
+     */
+    public int getPendingReconcileCount() {
+        if (pendingReconcile == null) {
+            return 0;
+        }
+        synchronized (pendingReconcile) {
+            return pendingReconcile.size();
+        }
+    }
+
+    /**
+     * 已入队但尚未写入Redis的UUID数量（异步写入未启用时为0）
+     */
+    public long getPendingWriteCount() {
+        return writeBehind != null ? writeBehind.getPendingCount() : 0;
     }
 
     /**
      * 关闭服务
      */
     public void close() {
+        if (writeBehind != null) {
+            // 先写完队列中的UUID，再关闭Redis连接
+            writeBehind.close(writeBehindCloseTimeoutMillis);
+        }
+        if (reconciler != null) {
+            reconciler.shutdown();
+            try {
+                reconciler.awaitTermination(5, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            // 关闭前最后补写一次
+            reconcile();
+            logger.info("Redis熔断器统计: {}, 降级发送: {}, 已补写: {}, 未补写: {}, 队列满丢弃: {}",
+                circuitBreaker, degradedCount.get(), reconciledCount.get(), getPendingReconcileCount(),
+                pendingDroppedCount.get());
+        }
         if (kafkaProducerService != null) {
             kafkaProducerService.close();
         }
-        if (redisService != null) {
-            redisService.close();
+        if (dedupStore != null) {
+            dedupStore.close();
+        }
+        if (bloomFilter != null) {
+            logger.info("本地布隆过滤器统计: {}, 跳过Redis预占: {}, 实测误判率: {}",
+                bloomFilter, getBloomSkippedCount(), String.format("%.6f", getBloomObservedFalsePositiveRate()));
         }
         logger.info("MessageService已关闭");
     }
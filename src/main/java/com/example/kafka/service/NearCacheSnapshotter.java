@@ -0,0 +1,248 @@
+package com.example.kafka.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 近端缓存快照
+ * 进程重启后近端缓存为空，所有查询都落到Redis，而重启后恰好是重试消息最集中的时候。
+ * 后台定时将近端缓存中未过期的条目写入紧凑的快照文件，启动时并行加载，使重启节点在数秒内恢复到稳定命中率。
+ *
+ * 文件格式：[magic:8][version:4][reserved:4][createdAt:8][count:8] + count 个 [msb:8][lsb:8][expiresAt:8]。
+ * 写入先落到临时文件，刷盘后原子替换，崩溃时旧快照仍然完整；遍历缓存时逐个分段加锁复制，不阻塞去重调用。
+ * 加载时按条目区间划分给多个线程，每个线程映射（mmap）自己的区间并写入缓存，已过期的条目跳过。
+ *
+ * 注意：快照之后才删除/释放的UUID，若进程在下一次快照前崩溃，重启后会重新出现在近端缓存中（误判为重复），
+ * 正常关闭时会写入最终快照；maxAgeSeconds 限制可加载快照的最大年龄。
+ */
+class NearCacheSnapshotter {
+    private static final Logger logger = LoggerFactory.getLogger(NearCacheSnapshotter.class);
+
+    private static final long MAGIC = 0x4e43534e41505348L;
+    private static final int VERSION = 1;
+    private static final int HEADER_BYTES = 32;
+    private static final int ENTRY_BYTES = 24;
+    private static final int WRITE_BUFFER_ENTRIES = 4096;
+
+    private final LocalUuidIndex index;
+    private final File file;
+    private final long maxAgeMillis;
+    private final int loadThreads;
+    private final ScheduledExecutorService scheduler;
+
+    /**
+     * @param index           近端缓存
+     * @param file            快照文件
+     * @param intervalSeconds 快照间隔（秒）
+     * @param maxAgeSeconds   启动时可加载快照的最大年龄（秒）
+     * @param loadThreads     加载线程数
+     */
+    NearCacheSnapshotter(LocalUuidIndex index, File file, long intervalSeconds, long maxAgeSeconds, int loadThreads) {
+        this.index = index;
+        this.file = file;
+        this.maxAgeMillis = TimeUnit.SECONDS.toMillis(maxAgeSeconds);
+        this.loadThreads = Math.max(1, loadThreads);
+
+        File parent = file.getAbsoluteFile().getParentFile();
+        if (parent != null && !parent.isDirectory() && !parent.mkdirs()) {
+            logger.warn("无法创建近端缓存快照目录: {}", parent.getAbsolutePath());
+        }
+
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "nearcache-snapshot");
+            thread.setDaemon(true);
+            return thread;
+        });
+        scheduler.scheduleWithFixedDelay(this::snapshotQuietly, intervalSeconds, intervalSeconds, TimeUnit.SECONDS);
+        logger.info("近端缓存快照已启用: file={}, intervalSeconds={}, maxAgeSeconds={}",
+            file.getAbsolutePath(), intervalSeconds, maxAgeSeconds);
+    }
+
+    /**
+     * 从快照文件并行加载未过期的条目；文件不存在、损坏或过旧时跳过
+     *
+     * @return 加载的条目数
+     */
+    int restore() {
+        if (!file.isFile()) {
+            logger.info("近端缓存快照不存在，冷启动: {}", file.getAbsolutePath());
+            return 0;
+        }
+
+        long start = System.nanoTime();
+        long count;
+        try (RandomAccessFile raf = new RandomAccessFile(file, "r");
+             FileChannel channel = raf.getChannel()) {
+            ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES);
+            while (header.hasRemaining() && channel.read(header) >= 0) {
+                // 读满文件头
+            }
+            header.flip();
+            if (header.remaining() < HEADER_BYTES || header.getLong(0) != MAGIC || header.getInt(8) != VERSION) {
+                logger.warn("近端缓存快照文件头无效，跳过: {}", file.getAbsolutePath());
+                return 0;
+            }
+            long createdAt = header.getLong(16);
+            count = header.getLong(24);
+            if (channel.size() != HEADER_BYTES + count * ENTRY_BYTES) {
+                logger.warn("近端缓存快照长度与条目数不符，跳过: {}", file.getAbsolutePath());
+                return 0;
+            }
+            long ageMillis = System.currentTimeMillis() - createdAt;
+            if (ageMillis > maxAgeMillis) {
+                logger.info("近端缓存快照已过旧（{}秒），跳过", TimeUnit.MILLISECONDS.toSeconds(ageMillis));
+                return 0;
+            }
+
+            int restored = load(channel, count);
+            logger.info("近端缓存快照已加载: 条目 {}/{}, 快照年龄 {}秒, 耗时 {}ms", restored, count,
+                TimeUnit.MILLISECONDS.toSeconds(ageMillis), TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+            return restored;
+        } catch (Exception e) {
+            logger.warn("近端缓存快照加载失败，冷启动: {}", e.getMessage());
+            return 0;
+        }
+    }
+
+    private int load(FileChannel channel, long count) throws Exception {
+        int threads = (int) Math.max(1, Math.min(loadThreads, count / WRITE_BUFFER_ENTRIES));
+        long perThread = (count + threads - 1) / threads;
+        long now = System.currentTimeMillis();
+        ExecutorService loader = Executors.newFixedThreadPool(threads, r -> {
+            Thread thread = new Thread(r, "nearcache-restore");
+            thread.setDaemon(true);
+            return thread;
+        });
+        try {
+            List<Future<Integer>> futures = new ArrayList<>();
+            for (long from = 0; from < count; from += perThread) {
+                long entries = Math.min(perThread, count - from);
+                MappedByteBuffer region = channel.map(FileChannel.MapMode.READ_ONLY,
+                    HEADER_BYTES + from * ENTRY_BYTES, entries * ENTRY_BYTES);
+                futures.add(loader.submit(() -> loadRegion(region, now)));
+            }
+            int restored = 0;
+            for (Future<Integer> future : futures) {
+                restored += future.get();
+            }
+            return restored;
+        } finally {
+            loader.shutdownNow();
+        }
+    }
+
+    private int loadRegion(MappedByteBuffer region, long now) {
+        int restored = 0;
+        for (int offset = 0; offset < region.limit(); offset += ENTRY_BYTES) {
+            long expiresAt = region.getLong(offset + 16);
+            if (expiresAt > now) {
+                index.put(region.getLong(offset), region.getLong(offset + 8), expiresAt);
+                restored++;
+            }
+        }
+        return restored;
+    }
+
+    /**
+     * 写入快照：遍历缓存写入临时文件，刷盘后原子替换
+     *
+     * @return 写入的条目数
+     */
+    long snapshot() throws IOException {
+        long start = System.nanoTime();
+        File tmp = new File(file.getPath() + ".tmp");
+        long[] count = new long[1];
+        try (RandomAccessFile raf = new RandomAccessFile(tmp, "rw");
+             FileChannel channel = raf.getChannel()) {
+            raf.setLength(0);
+            ByteBuffer buffer = ByteBuffer.allocate(WRITE_BUFFER_ENTRIES * ENTRY_BYTES);
+            channel.position(HEADER_BYTES);
+            IOException[] failure = new IOException[1];
+            index.forEach((msb, lsb, expiresAt) -> {
+                if (failure[0] != null) {
+                    return;
+                }
+                buffer.putLong(msb).putLong(lsb).putLong(expiresAt);
+                count[0]++;
+                if (!buffer.hasRemaining()) {
+                    failure[0] = drain(channel, buffer);
+                }
+            });
+            if (failure[0] == null) {
+                failure[0] = drain(channel, buffer);
+            }
+            if (failure[0] != null) {
+                throw failure[0];
+            }
+
+            ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES);
+            header.putLong(MAGIC).putInt(VERSION).putInt(0).putLong(System.currentTimeMillis()).putLong(count[0]);
+            header.flip();
+            channel.position(0);
+            while (header.hasRemaining()) {
+                channel.write(header);
+            }
+            channel.force(true);
+        }
+        Files.move(tmp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        logger.debug("近端缓存快照已写入: 条目 {}, 耗时 {}ms", count[0], TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+        return count[0];
+    }
+
+    private static IOException drain(FileChannel channel, ByteBuffer buffer) {
+        buffer.flip();
+        try {
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+            return null;
+        } catch (IOException e) {
+            return e;
+        } finally {
+            buffer.clear();
+        }
+    }
+
+    private void snapshotQuietly() {
+        try {
+            snapshot();
+        } catch (Exception e) {
+            logger.warn("近端缓存快照写入失败: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * 停止定时快照，并写入最终快照
+     */
+    void close() {
+        // 不中断正在进行的快照：FileChannel被中断会直接关闭
+        scheduler.shutdown();
+        try {
+            scheduler.awaitTermination(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        try {
+            long count = snapshot();
+            logger.info("近端缓存最终快照已写入: 条目 {}, file={}", count, file.getAbsolutePath());
+        } catch (Exception e) {
+            logger.warn("近端缓存最终快照写入失败: {}", e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,349 @@
+package com.example.kafka.service;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 堆外UUID集合
+ * UUID以两个long（128位）存放在堆外开放寻址表中，每个条目附带过期时间戳，共24字节，
+ * 不产生任何堆对象，千万级条目也不会增加GC压力。
+ *
+ * 条目布局：[msb:8][lsb:8][expiresAt:8]，expiresAt=0 表示空槽；
+ * 过期条目保留原键作为墓碑，查找时跳过，插入时复用，扩容时丢弃。
+ * 表按UUID哈希分段加锁；装载率超过 0.75 时段内扩容，达到容量上限后整理分段并淘汰最早过期的一批条目。
+ */
+public class OffHeapUuidSet implements LocalUuidIndex {
+    private static final int SEGMENT_COUNT = 16;
+    private static final int ENTRY_BYTES = 24;
+    private static final double MAX_LOAD = 0.75;
+    private static final int INITIAL_SEGMENT_CAPACITY = 1024;
+    /** 容量已满时，每次整理淘汰约 1/8 最早过期的条目 */
+    private static final int EVICTION_FRACTION = 8;
+    private static final int EVICTION_SAMPLE = 1024;
+
+    private final Segment[] segments;
+    private final long ttlMillis;
+
+    private final AtomicLong hitCount = new AtomicLong();
+    private final AtomicLong missCount = new AtomicLong();
+    private final AtomicLong evictionCount = new AtomicLong();
+
+    /**
+     * @param maxEntries 最大条目数（分段容量按2的幂向上取整）
+     * @param ttlSeconds 条目存活时间（秒）
+     */
+    public OffHeapUuidSet(long maxEntries, long ttlSeconds) {
+        this.ttlMillis = TimeUnit.SECONDS.toMillis(ttlSeconds);
+        long maxSegmentCapacity = nextPowerOfTwo((long) Math.ceil(maxEntries / (double) SEGMENT_COUNT / MAX_LOAD));
+        // 单段使用一个ByteBuffer，受限于int寻址
+        maxSegmentCapacity = Math.min(maxSegmentCapacity, Integer.highestOneBit(Integer.MAX_VALUE / ENTRY_BYTES));
+        int initialCapacity = (int) Math.min(maxSegmentCapacity, INITIAL_SEGMENT_CAPACITY);
+
+        this.segments = new Segment[SEGMENT_COUNT];
+        for (int i = 0; i < SEGMENT_COUNT; i++) {
+            segments[i] = new Segment(initialCapacity, (int) maxSegmentCapacity);
+        }
+    }
+
+    @Override
+    public boolean contains(String uuid) {
+        long[] bits = UuidHashing.toBits(uuid);
+        boolean hit = contains(bits[0], bits[1], System.currentTimeMillis());
+        if (hit) {
+            hitCount.incrementAndGet();
+        } else {
+            missCount.incrementAndGet();
+        }
+        return hit;
+    }
+
+    /**
+     * 按128位键查询
+     */
+    public boolean contains(long msb, long lsb, long now) {
+        Segment segment = segmentFor(msb, lsb);
+        synchronized (segment) {
+            return segment.find(msb, lsb, now) >= 0;
+        }
+    }
+
+    @Override
+    public void put(String uuid) {
+        long[] bits = UuidHashing.toBits(uuid);
+        put(bits[0], bits[1], System.currentTimeMillis() + ttlMillis);
+    }
+
+    /**
+     * 按128位键写入，指定过期时间戳（毫秒）
+     */
+    @Override
+    public void put(long msb, long lsb, long expiresAt) {
+        Segment segment = segmentFor(msb, lsb);
+        synchronized (segment) {
+            segment.put(msb, lsb, expiresAt);
+        }
+    }
+
+    @Override
+    public void invalidate(String uuid) {
+        long[] bits = UuidHashing.toBits(uuid);
+        Segment segment = segmentFor(bits[0], bits[1]);
+        synchronized (segment) {
+            segment.expire(bits[0], bits[1]);
+        }
+    }
+
+    @Override
+    public void forEach(EntryVisitor visitor) {
+        long now = System.currentTimeMillis();
+        for (Segment segment : segments) {
+            long[] entries;
+            synchronized (segment) {
+                entries = segment.copyLive(now);
+            }
+            for (int i = 0; i < entries.length; i += 3) {
+                visitor.visit(entries[i], entries[i + 1], entries[i + 2]);
+            }
+        }
+    }
+
+    @Override
+    public int size() {
+        long size = 0;
+        for (Segment segment : segments) {
+            synchronized (segment) {
+                size += segment.occupied;
+            }
+        }
+        return (int) Math.min(Integer.MAX_VALUE, size);
+    }
+
+    /**
+     * 已分配的堆外内存（字节）
+     */
+    public long getMemoryBytes() {
+        long bytes = 0;
+        for (Segment segment : segments) {
+            synchronized (segment) {
+                bytes += (long) segment.capacity * ENTRY_BYTES;
+            }
+        }
+        return bytes;
+    }
+
+    @Override
+    public long getHitCount() {
+        return hitCount.get();
+    }
+
+    @Override
+    public long getMissCount() {
+        return missCount.get();
+    }
+
+    @Override
+    public long getEvictionCount() {
+        return evictionCount.get();
+    }
+
+    private Segment segmentFor(long msb, long lsb) {
+        return segments[(int) (UuidHashing.mix64(msb ^ lsb) >>> 60) & (SEGMENT_COUNT - 1)];
+    }
+
+    private static long nextPowerOfTwo(long value) {
+        long n = Math.max(2, value);
+        return Long.highestOneBit(n - 1) << 1;
+    }
+
+    @Override
+    public String toString() {
+        return "OffHeapUuidSet{" +
+                "size=" + size() +
+                ", memoryBytes=" + getMemoryBytes() +
+                ", hits=" + getHitCount() +
+                ", misses=" + getMissCount() +
+                ", evictions=" + getEvictionCount() +
+                ", hitRatio=" + String.format("%.3f", getHitRatio()) +
+                '}';
+    }
+
+    /**
+     * 单个分段：一块直接内存上的线性探测表，调用方负责加锁
+     */
+    private final class Segment {
+        private final int maxCapacity;
+        private ByteBuffer table;
+        private int capacity;
+        /** 已占用槽数（含墓碑） */
+        private int occupied;
+
+        private Segment(int initialCapacity, int maxCapacity) {
+            this.maxCapacity = maxCapacity;
+            allocate(initialCapacity);
+        }
+
+        private void allocate(int newCapacity) {
+            this.table = ByteBuffer.allocateDirect(newCapacity * ENTRY_BYTES);
+            this.capacity = newCapacity;
+            this.occupied = 0;
+        }
+
+        private int home(long msb, long lsb) {
+            return (int) UuidHashing.mix64(msb * 31 + lsb) & (capacity - 1);
+        }
+
+        /**
+         * 查找未过期的条目，返回槽位，未找到返回-1
+         */
+        private int find(long msb, long lsb, long now) {
+            int slot = home(msb, lsb);
+            for (int probes = 0; probes < capacity; probes++) {
+                int offset = slot * ENTRY_BYTES;
+                long expiresAt = table.getLong(offset + 16);
+                if (expiresAt == 0) {
+                    return -1;
+                }
+                if (table.getLong(offset) == msb && table.getLong(offset + 8) == lsb) {
+                    return expiresAt > now ? slot : -1;
+                }
+                slot = (slot + 1) & (capacity - 1);
+            }
+            return -1;
+        }
+
+        private void put(long msb, long lsb, long expiresAt) {
+            long now = System.currentTimeMillis();
+            if (occupied + 1 > capacity * MAX_LOAD) {
+                if (capacity < maxCapacity) {
+                    rebuild(capacity * 2, now);
+                } else {
+                    compact(now);
+                }
+            }
+
+            int slot = home(msb, lsb);
+            int reusable = -1;
+            for (int probes = 0; probes < capacity; probes++) {
+                int offset = slot * ENTRY_BYTES;
+                long existing = table.getLong(offset + 16);
+                if (existing == 0) {
+                    break;
+                }
+                if (table.getLong(offset) == msb && table.getLong(offset + 8) == lsb) {
+                    table.putLong(offset + 16, expiresAt);
+                    return;
+                }
+                if (existing <= now && reusable < 0) {
+                    reusable = slot;
+                }
+                slot = (slot + 1) & (capacity - 1);
+            }
+
+            if (reusable >= 0) {
+                write(reusable, msb, lsb, expiresAt);
+            } else {
+                write(slot, msb, lsb, expiresAt);
+                occupied++;
+            }
+        }
+
+        /**
+         * 将条目标记为已过期（保留键作为墓碑，不破坏探测链）
+         */
+        private void expire(long msb, long lsb) {
+            int slot = find(msb, lsb, Long.MIN_VALUE);
+            if (slot >= 0) {
+                table.putLong(slot * ENTRY_BYTES + 16, 1L);
+            }
+        }
+
+        /**
+         * 复制未过期的条目，按 [msb, lsb, expiresAt] 依次排列
+         */
+        private long[] copyLive(long now) {
+            long[] entries = new long[occupied * 3];
+            int count = 0;
+            for (int i = 0; i < capacity; i++) {
+                int offset = i * ENTRY_BYTES;
+                long expiresAt = table.getLong(offset + 16);
+                if (expiresAt > now) {
+                    entries[count++] = table.getLong(offset);
+                    entries[count++] = table.getLong(offset + 8);
+                    entries[count++] = expiresAt;
+                }
+            }
+            return Arrays.copyOf(entries, count);
+        }
+
+        /**
+         * 容量已达上限时整理：丢弃过期条目，仍然过满则按过期时间淘汰最早的约 1/8
+         */
+        private void compact(long now) {
+            long live = 0;
+            long[] sample = new long[Math.min(EVICTION_SAMPLE, capacity)];
+            int sampled = 0;
+            int stride = Math.max(1, capacity / sample.length);
+            for (int i = 0; i < capacity; i++) {
+                long expiresAt = table.getLong(i * ENTRY_BYTES + 16);
+                if (expiresAt > now) {
+                    live++;
+                    if (i % stride == 0 && sampled < sample.length) {
+                        sample[sampled++] = expiresAt;
+                    }
+                }
+            }
+
+            long cutoff = now;
+            if (live + 1 > capacity * MAX_LOAD * (EVICTION_FRACTION - 1) / EVICTION_FRACTION && sampled > 0) {
+                Arrays.sort(sample, 0, sampled);
+                cutoff = Math.max(now, sample[sampled / EVICTION_FRACTION]);
+            }
+            rebuild(capacity, cutoff);
+            if (live > occupied) {
+                evictionCount.addAndGet(live - occupied);
+            }
+            if (occupied + 1 > capacity * MAX_LOAD) {
+                // 过期时间过于集中，按时间无法淘汰足够条目，只能整体清空
+                evictionCount.addAndGet(occupied);
+                allocate(capacity);
+            }
+        }
+
+        /**
+         * 按新容量重建，只保留过期时间晚于 keepAfter 的条目
+         */
+        private void rebuild(int newCapacity, long keepAfter) {
+            ByteBuffer old = table;
+            int oldCapacity = capacity;
+            allocate(newCapacity);
+            for (int i = 0; i < oldCapacity; i++) {
+                int offset = i * ENTRY_BYTES;
+                long expiresAt = old.getLong(offset + 16);
+                if (expiresAt > keepAfter) {
+                    insertFresh(old.getLong(offset), old.getLong(offset + 8), expiresAt);
+                }
+            }
+        }
+
+        /**
+         * 向不含墓碑的新表插入（rehash专用）
+         */
+        private void insertFresh(long msb, long lsb, long expiresAt) {
+            int slot = home(msb, lsb);
+            while (table.getLong(slot * ENTRY_BYTES + 16) != 0) {
+                slot = (slot + 1) & (capacity - 1);
+            }
+            write(slot, msb, lsb, expiresAt);
+            occupied++;
+        }
+
+        private void write(int slot, long msb, long lsb, long expiresAt) {
+            int offset = slot * ENTRY_BYTES;
+            table.putLong(offset, msb);
+            table.putLong(offset + 8, lsb);
+            table.putLong(offset + 16, expiresAt);
+        }
+    }
+}
@@ -0,0 +1,179 @@
+package com.example.kafka.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Redis熔断器
+ * 基于最近 windowSize 次调用的滑动窗口统计失败率与慢调用比例：
+ * - 失败率 ≥ failureRateThreshold，或
+ * - 耗时 ≥ slowCallMillis 的调用比例 ≥ 1 - slowCallPercentile（即该分位延迟超过阈值，如P99 ≥ 500ms）
+ * 任一条件满足即打开熔断。打开期间 {@link #allowRequest()} 只读取一个volatile字段，微秒级返回；
+ * openMillis 之后进入半开状态，放行 halfOpenCalls 次试探调用，全部成功且不慢则关闭，否则重新打开。
+ */
+public class RedisCircuitBreaker {
+    private static final Logger logger = LoggerFactory.getLogger(RedisCircuitBreaker.class);
+
+    public enum State {
+        CLOSED, OPEN, HALF_OPEN
+    }
+
+    private final int windowSize;
+    private final int minimumCalls;
+    private final double failureRateThreshold;
+    private final long slowCallNanos;
+    private final double slowCallRateThreshold;
+    private final long openNanos;
+    private final int halfOpenCalls;
+
+    /** 滑动窗口：每次调用的结果，bit0=失败，bit1=慢调用 */
+    private final byte[] window;
+    private int windowIndex;
+    private int windowCount;
+    private int failureCount;
+    private int slowCount;
+
+    private volatile State state = State.CLOSED;
+    private volatile long openUntilNanos;
+    private final AtomicInteger halfOpenPermits = new AtomicInteger();
+    private int halfOpenSuccesses;
+    private final AtomicLong tripCount = new AtomicLong();
+
+    /**
+     * @param windowSize           滑动窗口大小（调用次数）
+     * @param minimumCalls         窗口内至少多少次调用后才开始判断
+     * @param failureRateThreshold 失败率阈值（0~1）
+     * @param slowCallMillis       慢调用阈值（毫秒）
+     * @param slowCallPercentile   延迟分位（如0.99），该分位延迟超过 slowCallMillis 时打开
+     * @param openMillis           打开后多久进入半开（毫秒）
+     * @param halfOpenCalls        半开状态放行的试探调用数
+     */
+    public RedisCircuitBreaker(int windowSize, int minimumCalls, double failureRateThreshold, long slowCallMillis,
+                               double slowCallPercentile, long openMillis, int halfOpenCalls) {
+        this.windowSize = Math.max(1, windowSize);
+        this.minimumCalls = Math.max(1, Math.min(minimumCalls, this.windowSize));
+        this.failureRateThreshold = failureRateThreshold;
+        this.slowCallNanos = TimeUnit.MILLISECONDS.toNanos(slowCallMillis);
+        this.slowCallRateThreshold = 1.0 - slowCallPercentile;
+        this.openNanos = TimeUnit.MILLISECONDS.toNanos(openMillis);
+        this.halfOpenCalls = Math.max(1, halfOpenCalls);
+        this.window = new byte[this.windowSize];
+    }
+
+    /**
+     * 是否允许本次调用Redis；返回false时调用方应立即走降级路径
+     */
+    public boolean allowRequest() {
+        State current = state;
+        if (current == State.CLOSED) {
+            return true;
+        }
+        if (current == State.OPEN) {
+            if (System.nanoTime() < openUntilNanos) {
+                return false;
+            }
+            toHalfOpen();
+        }
+        return halfOpenPermits.getAndDecrement() > 0;
+    }
+
+    /**
+     * 记录一次成功调用及其耗时
+     */
+    public void onSuccess(long elapsedNanos) {
+        record(false, elapsedNanos >= slowCallNanos);
+    }
+
+    /**
+     * 记录一次失败调用及其耗时
+     */
+    public void onFailure(long elapsedNanos) {
+        record(true, elapsedNanos >= slowCallNanos);
+    }
+
+    private synchronized void record(boolean failed, boolean slow) {
+        if (state == State.HALF_OPEN) {
+            if (failed || slow) {
+                open("半开试探失败");
+            } else if (++halfOpenSuccesses >= halfOpenCalls) {
+                close();
+            }
+            return;
+        }
+        if (state == State.OPEN) {
+            // 打开前已发出的调用，结果不再计入
+            return;
+        }
+
+        byte outcome = (byte) ((failed ? 1 : 0) | (slow ? 2 : 0));
+        if (windowCount == windowSize) {
+            byte evicted = window[windowIndex];
+            failureCount -= evicted & 1;
+            slowCount -= (evicted >> 1) & 1;
+        } else {
+            windowCount++;
+        }
+        window[windowIndex] = outcome;
+        windowIndex = (windowIndex + 1) % windowSize;
+        failureCount += outcome & 1;
+        slowCount += (outcome >> 1) & 1;
+
+        if (windowCount >= minimumCalls) {
+            double failureRate = failureCount * 1.0 / windowCount;
+            double slowRate = slowCount * 1.0 / windowCount;
+            if (failureRate >= failureRateThreshold) {
+                open(String.format("失败率 %.2f", failureRate));
+            } else if (slowCount > 0 && slowRate >= slowCallRateThreshold) {
+                open(String.format("慢调用比例 %.3f（阈值 %.3f）", slowRate, slowCallRateThreshold));
+            }
+        }
+    }
+
+    private void open(String reason) {
+        openUntilNanos = System.nanoTime() + openNanos;
+        state = State.OPEN;
+        tripCount.incrementAndGet();
+        logger.warn("Redis熔断器打开: {}, {}ms后半开试探", reason, TimeUnit.NANOSECONDS.toMillis(openNanos));
+    }
+
+    private synchronized void toHalfOpen() {
+        if (state == State.OPEN && System.nanoTime() >= openUntilNanos) {
+            halfOpenSuccesses = 0;
+            halfOpenPermits.set(halfOpenCalls);
+            state = State.HALF_OPEN;
+            logger.info("Redis熔断器半开，放行 {} 次试探调用", halfOpenCalls);
+        }
+    }
+
+    private void close() {
+        windowIndex = 0;
+        windowCount = 0;
+        failureCount = 0;
+        slowCount = 0;
+        state = State.CLOSED;
+        logger.info("Redis熔断器关闭，恢复访问Redis");
+    }
+
+    public State getState() {
+        return state;
+    }
+
+    /**
+     * 累计打开次数
+     */
+    public long getTripCount() {
+        return tripCount.get();
+    }
+
+    @Override
+    public String toString() {
+        return "RedisCircuitBreaker{" +
+                "state=" + state +
+                ", trips=" + tripCount.get() +
+                '}';
+    }
+}
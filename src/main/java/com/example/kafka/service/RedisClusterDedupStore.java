@@ -0,0 +1,543 @@
+package com.example.kafka.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import redis.clients.jedis.BinaryJedisCluster;
+import redis.clients.jedis.HostAndPort;
+import redis.clients.jedis.Jedis;
+import redis.clients.jedis.JedisPool;
+import redis.clients.jedis.JedisPoolConfig;
+import redis.clients.jedis.Pipeline;
+import redis.clients.jedis.Response;
+import redis.clients.jedis.exceptions.JedisAskDataException;
+import redis.clients.jedis.exceptions.JedisClusterMaxAttemptsException;
+import redis.clients.jedis.exceptions.JedisConnectionException;
+import redis.clients.jedis.exceptions.JedisMovedDataException;
+import redis.clients.jedis.params.SetParams;
+import redis.clients.jedis.util.JedisClusterCRC16;
+import redis.clients.jedis.util.SafeEncoder;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.BiFunction;
+import java.util.function.Function;
+
+/**
+ * Redis Cluster去重存储
+ * 客户端缓存16384个槽位的主节点（CLUSTER SLOTS），每条命令按键的槽位路由；
+ * 批量调用按所属节点分组，每个节点一个pipeline，节点之间互不影响。
+ *
+ * 重定向处理：
+ * - MOVED：立即更新该槽位的归属并重发该命令，同时由一个线程在后台刷新完整槽位表（其余线程不等待）
+ * - ASK：仅对该命令在目标节点上先发送 ASKING 再重发，不修改槽位表（槽位迁移中）
+ * 单条命令最多重定向 {@value #MAX_REDIRECTS} 次。
+ *
+ * 集群模式下每个UUID一个键（兼容 redis.key.encoding / legacyRead），不使用 hash / window 存储布局，
+ * 因为这两种布局把多个UUID放在同一个键里，无法按槽位扩展。
+ * 配置 redis.cluster.hashTag.separator 后，UUID中分隔符之前的部分作为哈希标签（键前缀 "{标签}"），
+ * 同一标签的UUID落在同一槽位。
+ */
+public class RedisClusterDedupStore implements DedupStore {
+    private static final Logger logger = LoggerFactory.getLogger(RedisClusterDedupStore.class);
+
+    private static final int MAX_REDIRECTS = 5;
+    private static final long MIN_REFRESH_INTERVAL_MILLIS = 1000;
+
+    /**
+     * 单条待发送命令：键决定槽位，command向pipeline排入命令
+     */
+    private static final class ClusterCommand {
+        private final int slot;
+        private final Function<Pipeline, Response<?>> command;
+        private HostAndPort askTarget;
+        private Object result;
+
+        private ClusterCommand(byte[] key, Function<Pipeline, Response<?>> command) {
+            this.slot = JedisClusterCRC16.getSlot(key);
+            this.command = command;
+        }
+    }
+
+    private final Set<HostAndPort> seeds;
+    private final JedisPoolConfig poolConfig;
+    private final int timeout;
+    private final String password;
+    private final int expireSeconds;
+    private final int leaseSeconds;
+    private final DedupKeyCodec keyCodec;
+    private final String hashTagSeparator;
+
+    private final Map<HostAndPort, JedisPool> nodePools = new ConcurrentHashMap<>();
+    private final AtomicReferenceArray<HostAndPort> slotOwners = new AtomicReferenceArray<>(BinaryJedisCluster.HASHSLOTS);
+    private final ReentrantLock refreshLock = new ReentrantLock();
+    private volatile long lastRefreshTime;
+
+    private final AtomicLong movedCount = new AtomicLong();
+    private final AtomicLong askCount = new AtomicLong();
+
+    /**
+     * @param props 配置（redis.cluster.nodes、连接池、编码等）
+     */
+    public RedisClusterDedupStore(Properties props) {
+        this.seeds = new LinkedHashSet<>();
+        for (String node : props.getProperty("redis.cluster.nodes", "localhost:7000").split(",")) {
+            if (!node.trim().isEmpty()) {
+                seeds.add(HostAndPort.parseString(node.trim()));
+            }
+        }
+        this.poolConfig = RedisService.createPoolConfig(props);
+        this.timeout = Integer.parseInt(props.getProperty("redis.timeout", "3000"));
+        String configuredPassword = props.getProperty("redis.password");
+        this.password = configuredPassword != null && !configuredPassword.trim().isEmpty() ? configuredPassword : null;
+        this.expireSeconds = Integer.parseInt(props.getProperty("redis.uuid.expire.seconds", "604800"));
+        this.leaseSeconds = Integer.parseInt(props.getProperty("redis.uuid.lease.seconds", "30"));
+        this.keyCodec = new DedupKeyCodec(
+            DedupKeyCodec.Encoding.valueOf(props.getProperty("redis.key.encoding", "string").toUpperCase()),
+            Boolean.parseBoolean(props.getProperty("redis.key.legacyRead", "true")));
+        String separator = props.getProperty("redis.cluster.hashTag.separator", "");
+        this.hashTagSeparator = separator.isEmpty() ? null : separator;
+
+        if (!"key".equalsIgnoreCase(props.getProperty("redis.storage.mode", "key"))) {
+            logger.warn("Redis Cluster模式仅支持 redis.storage.mode=key，已忽略配置: {}",
+                props.getProperty("redis.storage.mode"));
+        }
+
+        refreshSlots(true);
+        logger.info("Redis Cluster去重存储初始化成功: seeds={}, nodes={}, hashTagSeparator={}",
+            seeds, nodePools.keySet(), hashTagSeparator);
+    }
+
+    @Override
+    public boolean isUuidExists(String uuid) {
+        try {
+            List<ClusterCommand> commands = queueExists(uuid);
+            run(commands);
+            boolean exists = anyTrue(commands);
+            logger.debug("检查UUID: {}, 结果: {}", uuid, exists);
+            return exists;
+        } catch (Exception e) {
+            logger.error("检查UUID失败: {}", uuid, e);
+            throw new RuntimeException("Redis操作失败", e);
+        }
+    }
+
+    @Override
+    public boolean saveUuid(String uuid) {
+        try {
+            ClusterCommand command = queueSave(uuid, System.currentTimeMillis());
+            run(Collections.singletonList(command));
+            boolean success = "OK".equals(command.result);
+            if (success) {
+                logger.info("UUID保存成功: {}, 过期时间: {}秒", uuid, expireSeconds);
+            } else {
+                logger.warn("UUID保存失败: {}", uuid);
+            }
+            return success;
+        } catch (Exception e) {
+            logger.error("保存UUID失败: {}", uuid, e);
+            throw new RuntimeException("Redis操作失败", e);
+        }
+    }
+
+    @Override
+    public boolean reserveUuid(String uuid) {
+        try {
+            List<ClusterCommand> commands = new ArrayList<>(2);
+            // 兼容读取时额外检查旧字符串键，它通常位于另一个槽位
+            ClusterCommand legacy = keyCodec.hasLegacyFallback()
+                ? command(keyFor(uuid, keyCodec.legacyKey(uuid)), (p, k) -> p.exists(k))
+                : null;
+            if (legacy != null) {
+                commands.add(legacy);
+            }
+            byte[] value = keyCodec.value(System.currentTimeMillis());
+            ClusterCommand reserve = command(keyFor(uuid, keyCodec.key(uuid)),
+                (p, k) -> p.set(k, value, SetParams.setParams().nx().ex(leaseSeconds)));
+            commands.add(reserve);
+            run(commands);
+
+            boolean reserved = "OK".equals(reserve.result) && (legacy == null || !Boolean.TRUE.equals(legacy.result));
+            logger.debug("预占UUID: {}, 结果: {}, 租约: {}秒", uuid, reserved, leaseSeconds);
+            return reserved;
+        } catch (Exception e) {
+            logger.error("预占UUID失败: {}", uuid, e);
+            throw new RuntimeException("Redis操作失败", e);
+        }
+    }
+
+    @Override
+    public boolean releaseUuid(String uuid) {
+        try {
+            ClusterCommand command = command(keyFor(uuid, keyCodec.key(uuid)), (p, k) -> p.del(k));
+            run(Collections.singletonList(command));
+            boolean released = KeyDedupLayout.isPositive((Long) command.result);
+            logger.debug("释放UUID租约: {}, 结果: {}", uuid, released);
+            return released;
+        } catch (Exception e) {
+            logger.error("释放UUID租约失败: {}", uuid, e);
+            throw new RuntimeException("Redis操作失败", e);
+        }
+    }
+
+    @Override
+    public boolean deleteUuid(String uuid) {
+        try {
+            List<ClusterCommand> commands = new ArrayList<>();
+            for (byte[] key : keyCodec.lookupKeys(uuid)) {
+                commands.add(command(keyFor(uuid, key), (p, k) -> p.del(k)));
+            }
+            run(commands);
+            boolean deleted = false;
+            for (ClusterCommand command : commands) {
+                deleted |= KeyDedupLayout.isPositive((Long) command.result);
+            }
+            logger.debug("删除UUID: {}, 结果: {}", uuid, deleted);
+            return deleted;
+        } catch (Exception e) {
+            logger.error("删除UUID失败: {}", uuid, e);
+            throw new RuntimeException("Redis操作失败", e);
+        }
+    }
+
+    /**
+     * 批量检查：按槽位所属节点分组，每个节点一个pipeline
+     */
+    @Override
+    public Map<String, Boolean> existsBatch(Collection<String> uuids) {
+        Map<String, Boolean> result = new LinkedHashMap<>();
+        if (uuids == null || uuids.isEmpty()) {
+            return result;
+        }
+
+        try {
+            Map<String, List<ClusterCommand>> perUuid = new LinkedHashMap<>();
+            List<ClusterCommand> all = new ArrayList<>();
+            for (String uuid : uuids) {
+                List<ClusterCommand> commands = queueExists(uuid);
+                perUuid.put(uuid, commands);
+                all.addAll(commands);
+            }
+            run(all);
+
+            for (Map.Entry<String, List<ClusterCommand>> entry : perUuid.entrySet()) {
+                result.put(entry.getKey(), anyTrue(entry.getValue()));
+            }
+            logger.debug("批量检查UUID: {} 个", result.size());
+            return result;
+        } catch (Exception e) {
+            logger.error("批量检查UUID失败, 数量: {}", uuids.size(), e);
+            throw new RuntimeException("Redis操作失败", e);
+        }
+    }
+
+    /**
+     * 批量预占：按槽位所属节点分组，每个节点一个pipeline
+     * 批内UUID分布在不同槽位，多键Lua脚本会返回CROSSSLOT，因此逐键 SET NX EX
+     */
+    @Override
+    public Map<String, Boolean> reserveBatch(Collection<String> uuids) {
+        Map<String, Boolean> result = new LinkedHashMap<>();
+        if (uuids == null || uuids.isEmpty()) {
+            return result;
+        }
+
+        try {
+            byte[] value = keyCodec.value(System.currentTimeMillis());
+            Map<String, ClusterCommand> reserves = new LinkedHashMap<>();
+            Map<String, ClusterCommand> legacies = new LinkedHashMap<>();
+            List<ClusterCommand> all = new ArrayList<>();
+            for (String uuid : uuids) {
+                if (reserves.containsKey(uuid)) {
+                    continue;
+                }
+                if (keyCodec.hasLegacyFallback()) {
+                    ClusterCommand legacy = command(keyFor(uuid, keyCodec.legacyKey(uuid)), (p, k) -> p.exists(k));
+                    legacies.put(uuid, legacy);
+                    all.add(legacy);
+                }
+                ClusterCommand reserve = command(keyFor(uuid, keyCodec.key(uuid)),
+                    (p, k) -> p.set(k, value, SetParams.setParams().nx().ex(leaseSeconds)));
+                reserves.put(uuid, reserve);
+                all.add(reserve);
+            }
+            run(all);
+
+            for (Map.Entry<String, ClusterCommand> entry : reserves.entrySet()) {
+                ClusterCommand legacy = legacies.get(entry.getKey());
+                result.put(entry.getKey(), "OK".equals(entry.getValue().result)
+                    && (legacy == null || !Boolean.TRUE.equals(legacy.result)));
+            }
+            logger.debug("批量预占UUID: {} 个", result.size());
+            return result;
+        } catch (Exception e) {
+            logger.error("批量预占UUID失败, 数量: {}", uuids.size(), e);
+            throw new RuntimeException("Redis操作失败", e);
+        }
+    }
+
+    /**
+     * 批量保存：按槽位所属节点分组，每个节点一个pipeline
+     */
+    @Override
+    public int saveBatch(Map<String, Long> uuidValues) {
+        if (uuidValues == null || uuidValues.isEmpty()) {
+            return 0;
+        }
+
+        try {
+            List<ClusterCommand> commands = new ArrayList<>(uuidValues.size());
+            for (Map.Entry<String, Long> entry : uuidValues.entrySet()) {
+                Long value = entry.getValue();
+                commands.add(queueSave(entry.getKey(), value != null ? value : System.currentTimeMillis()));
+            }
+            run(commands);
+
+            int saved = 0;
+            for (ClusterCommand command : commands) {
+                if ("OK".equals(command.result)) {
+                    saved++;
+                }
+            }
+            logger.info("批量保存UUID: {}/{} 成功, 过期时间: {}秒", saved, uuidValues.size(), expireSeconds);
+            return saved;
+        } catch (Exception e) {
+            logger.error("批量保存UUID失败, 数量: {}", uuidValues.size(), e);
+            throw new RuntimeException("Redis操作失败", e);
+        }
+    }
+
+    /**
+     * 收到MOVED重定向的次数（持续增长说明槽位正在迁移或槽位表频繁过期）
+     */
+    public long getMovedCount() {
+        return movedCount.get();
+    }
+
+    /**
+     * 收到ASK重定向的次数
+     */
+    public long getAskCount() {
+        return askCount.get();
+    }
+
+    @Override
+    public void close() {
+        for (JedisPool pool : nodePools.values()) {
+            pool.close();
+        }
+        logger.info("Redis Cluster去重存储已关闭, MOVED: {}, ASK: {}", movedCount.get(), askCount.get());
+    }
+
+    private List<ClusterCommand> queueExists(String uuid) {
+        // 新旧两种键通常位于不同槽位，逐键检查
+        List<ClusterCommand> commands = new ArrayList<>(2);
+        for (byte[] key : keyCodec.lookupKeys(uuid)) {
+            commands.add(command(keyFor(uuid, key), (p, k) -> p.exists(k)));
+        }
+        return commands;
+    }
+
+    private ClusterCommand queueSave(String uuid, long timestamp) {
+        return command(keyFor(uuid, keyCodec.key(uuid)), (p, k) -> p.setex(k, expireSeconds, keyCodec.value(timestamp)));
+    }
+
+    private static ClusterCommand command(byte[] key, BiFunction<Pipeline, byte[], Response<?>> command) {
+        return new ClusterCommand(key, p -> command.apply(p, key));
+    }
+
+    /**
+     * 按配置为键加上哈希标签前缀
+     */
+    private byte[] keyFor(String uuid, byte[] key) {
+        if (hashTagSeparator == null) {
+            return key;
+        }
+        int index = uuid.indexOf(hashTagSeparator);
+        if (index <= 0) {
+            return key;
+        }
+        byte[] tag = SafeEncoder.encode("{" + uuid.substring(0, index) + "}");
+        byte[] tagged = new byte[tag.length + key.length];
+        System.arraycopy(tag, 0, tagged, 0, tag.length);
+        System.arraycopy(key, 0, tagged, tag.length, key.length);
+        return tagged;
+    }
+
+    private static boolean anyTrue(List<ClusterCommand> commands) {
+        for (ClusterCommand command : commands) {
+            if (Boolean.TRUE.equals(command.result)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * 发送一组命令：按节点分组pipeline发送，重定向的命令在下一轮重发
+     */
+    private void run(List<ClusterCommand> commands) {
+        List<ClusterCommand> pending = commands;
+        JedisConnectionException lastConnectionError = null;
+
+        for (int attempt = 0; attempt <= MAX_REDIRECTS && !pending.isEmpty(); attempt++) {
+            List<ClusterCommand> retry = new ArrayList<>();
+            Map<HostAndPort, List<ClusterCommand>> groups = new LinkedHashMap<>();
+            for (ClusterCommand command : pending) {
+                HostAndPort target = command.askTarget != null ? command.askTarget : ownerOf(command.slot);
+                groups.computeIfAbsent(target, k -> new ArrayList<>()).add(command);
+            }
+
+            for (Map.Entry<HostAndPort, List<ClusterCommand>> group : groups.entrySet()) {
+                try {
+                    send(group.getKey(), group.getValue(), retry);
+                } catch (JedisConnectionException e) {
+                    // 节点不可用（可能刚发生故障转移），刷新槽位表后重发整组
+                    logger.warn("Redis Cluster节点 {} 连接失败，刷新槽位表后重试", group.getKey());
+                    lastConnectionError = e;
+                    for (ClusterCommand command : group.getValue()) {
+                        command.askTarget = null;
+                    }
+                    retry.addAll(group.getValue());
+                    refreshSlots(true);
+                }
+            }
+            pending = retry;
+        }
+
+        if (!pending.isEmpty()) {
+            if (lastConnectionError != null) {
+                throw lastConnectionError;
+            }
+            throw new JedisClusterMaxAttemptsException("重定向次数超过上限: " + MAX_REDIRECTS);
+        }
+    }
+
+    /**
+     * 向一个节点发送命令。ASK重定向的命令需要在同一连接上紧跟 ASKING 发送，逐条处理；
+     * 其余命令合并到一个pipeline
+     */
+    private void send(HostAndPort node, List<ClusterCommand> commands, List<ClusterCommand> retry) {
+        try (Jedis jedis = poolFor(node).getResource()) {
+            List<ClusterCommand> normal = new ArrayList<>(commands.size());
+            for (ClusterCommand command : commands) {
+                if (command.askTarget == null) {
+                    normal.add(command);
+                    continue;
+                }
+                command.askTarget = null;
+                jedis.asking();
+                Pipeline pipeline = jedis.pipelined();
+                Response<?> response = command.command.apply(pipeline);
+                pipeline.sync();
+                collect(command, response, retry);
+            }
+
+            if (!normal.isEmpty()) {
+                Pipeline pipeline = jedis.pipelined();
+                List<Response<?>> responses = new ArrayList<>(normal.size());
+                for (ClusterCommand command : normal) {
+                    responses.add(command.command.apply(pipeline));
+                }
+                pipeline.sync();
+                for (int i = 0; i < normal.size(); i++) {
+                    collect(normal.get(i), responses.get(i), retry);
+                }
+            }
+        }
+    }
+
+    private void collect(ClusterCommand command, Response<?> response, List<ClusterCommand> retry) {
+        try {
+            command.result = response.get();
+        } catch (JedisMovedDataException e) {
+            movedCount.incrementAndGet();
+            slotOwners.set(e.getSlot(), e.getTargetNode());
+            retry.add(command);
+            // 槽位已迁移，通常不止这一个，由拿到锁的线程刷新完整槽位表
+            refreshSlots(false);
+        } catch (JedisAskDataException e) {
+            askCount.incrementAndGet();
+            command.askTarget = e.getTargetNode();
+            retry.add(command);
+        }
+    }
+
+    private HostAndPort ownerOf(int slot) {
+        HostAndPort owner = slotOwners.get(slot);
+        if (owner == null) {
+            refreshSlots(true);
+            owner = slotOwners.get(slot);
+            if (owner == null) {
+                throw new JedisConnectionException("槽位 " + slot + " 没有可用的主节点");
+            }
+        }
+        return owner;
+    }
+
+    private JedisPool poolFor(HostAndPort node) {
+        return nodePools.computeIfAbsent(node,
+            n -> new JedisPool(poolConfig, n.getHost(), n.getPort(), timeout, password));
+    }
+
+    /**
+     * 从任一可达节点读取 CLUSTER SLOTS 刷新槽位表
+     *
+     * @param force true-等待其他线程的刷新完成后再刷新；false-已有线程在刷新或距上次刷新不足1秒时直接返回
+     */
+    private void refreshSlots(boolean force) {
+        if (force) {
+            refreshLock.lock();
+        } else if (System.currentTimeMillis() - lastRefreshTime < MIN_REFRESH_INTERVAL_MILLIS || !refreshLock.tryLock()) {
+            return;
+        }
+
+        try {
+            Set<HostAndPort> candidates = new LinkedHashSet<>(nodePools.keySet());
+            candidates.addAll(seeds);
+            for (HostAndPort node : candidates) {
+                try (Jedis jedis = poolFor(node).getResource()) {
+                    applySlots(node, jedis.clusterSlots());
+                    lastRefreshTime = System.currentTimeMillis();
+                    return;
+                } catch (Exception e) {
+                    logger.warn("从节点 {} 读取槽位表失败: {}", node, e.getMessage());
+                }
+            }
+            logger.error("所有Redis Cluster节点均无法读取槽位表: {}", candidates);
+        } finally {
+            refreshLock.unlock();
+        }
+    }
+
+    /**
+     * 解析 CLUSTER SLOTS：[起始槽位, 结束槽位, [主节点host, port, id], 副本...]
+     */
+    @SuppressWarnings("unchecked")
+    private void applySlots(HostAndPort source, List<Object> slots) {
+        for (Object entry : slots) {
+            List<Object> range = (List<Object>) entry;
+            int start = ((Long) range.get(0)).intValue();
+            int end = ((Long) range.get(1)).intValue();
+            List<Object> master = (List<Object>) range.get(2);
+            String host = SafeEncoder.encode((byte[]) master.get(0));
+            int port = ((Long) master.get(1)).intValue();
+            // host为空表示与被查询节点相同
+            HostAndPort owner = new HostAndPort(host.isEmpty() ? source.getHost() : host, port);
+            for (int slot = start; slot <= end; slot++) {
+                slotOwners.set(slot, owner);
+            }
+        }
+        logger.debug("Redis Cluster槽位表已刷新: {} 个区间", slots.size());
+    }
+}
@@ -0,0 +1,254 @@
+package com.example.kafka.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import redis.clients.jedis.HostAndPort;
+import redis.clients.jedis.Jedis;
+import redis.clients.jedis.Pipeline;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * Redis自动pipeline调度器
+ * 将多个调用线程的去重命令（存在性检查 / 保存 / 预占）汇集到少量独占连接上，
+ * 按批次大小或微秒级截止时间刷出pipeline，再根据pipeline返回结果完成各调用方的Future。
+ * 调用方不再从JedisPool借用连接，连接池耗尽不再是吞吐上限。
+ */
+public class RedisPipelineDispatcher {
+    private static final Logger logger = LoggerFactory.getLogger(RedisPipelineDispatcher.class);
+
+    /**
+     * 待发送的单个操作：向pipeline排入命令，sync之后由返回的Supplier给出结果
+     */
+    private static final class Command {
+        private final Function<Pipeline, Supplier<Boolean>> op;
+        private final CompletableFuture<Boolean> future = new CompletableFuture<>();
+
+        private Command(Function<Pipeline, Supplier<Boolean>> op) {
+            this.op = op;
+        }
+    }
+
+    private final Supplier<HostAndPort> address;
+    private final int timeout;
+    private final String password;
+    private final int database;
+    private final int maxBatch;
+    private final long flushNanos;
+
+    private final BlockingQueue<Command> queue;
+    private final Thread[] workers;
+    private volatile boolean running = true;
+    /** 每次 {@link #reconnect()} 递增，工作线程发现变化后重建连接 */
+    private final AtomicInteger connectionGeneration = new AtomicInteger();
+
+    /**
+     * @param host        Redis主机
+     * @param port        Redis端口
+     * @param timeout     连接/读超时（毫秒）
+     * @param password    密码，可为null
+     * @param database    数据库索引
+     * @param connections 独占连接数（即工作线程数）
+     * @param maxBatch    单个pipeline最多包含的命令数
+     * @param flushMicros 凑批等待的最长时间（微秒）
+     * @param queueSize   待发送队列容量，队列满时调用直接失败
+     */
+    public RedisPipelineDispatcher(String host, int port, int timeout, String password, int database,
+                                   int connections, int maxBatch, long flushMicros, int queueSize) {
+        this(() -> new HostAndPort(host, port), timeout, password, database, connections, maxBatch, flushMicros, queueSize);
+    }
+
+    /**
+     * @param address 每次建立连接时取当前Redis地址（Sentinel模式下为当前主节点）
+     */
+    public RedisPipelineDispatcher(Supplier<HostAndPort> address, int timeout, String password, int database,
+                                   int connections, int maxBatch, long flushMicros, int queueSize) {
+        this.address = address;
+        this.timeout = timeout;
+        this.password = password;
+        this.database = database;
+        this.maxBatch = Math.max(1, maxBatch);
+        this.flushNanos = TimeUnit.MICROSECONDS.toNanos(Math.max(0, flushMicros));
+        this.queue = new LinkedBlockingQueue<>(queueSize);
+
+        this.workers = new Thread[Math.max(1, connections)];
+        for (int i = 0; i < workers.length; i++) {
+            Thread worker = new Thread(this::runWorker, "redis-dispatcher-" + i);
+            worker.setDaemon(true);
+            workers[i] = worker;
+            worker.start();
+        }
+
+        logger.info("Redis pipeline调度器已启动: {}, connections={}, maxBatch={}, flushMicros={}",
+            address.get(), workers.length, this.maxBatch, flushMicros);
+    }
+
+    /**
+     * 异步提交一个操作，与其他调用方的操作合并到同一个pipeline中发送
+     *
+     * @param op 向pipeline排入命令的函数，例如 {@code p -> layout.queueExists(p, uuid)}
+     * @return 操作结果
+     */
+    public CompletableFuture<Boolean> submit(Function<Pipeline, Supplier<Boolean>> op) {
+        Command command = new Command(op);
+        if (!running) {
+            command.future.completeExceptionally(new IllegalStateException("Redis pipeline调度器已关闭"));
+        } else if (!queue.offer(command)) {
+            command.future.completeExceptionally(new IllegalStateException("Redis pipeline调度器队列已满"));
+        }
+        return command.future;
+    }
+
+    /**
+     * 通知工作线程在下一批之前重建连接（主节点切换后调用，不必等旧连接超时）
+     */
+    public void reconnect() {
+        connectionGeneration.incrementAndGet();
+    }
+
+    /**
+     * 当前排队等待发送的命令数
+     */
+    public int getPendingCount() {
+        return queue.size();
+    }
+
+    /**
+     * 工作线程主循环：取到第一条命令后尽量凑满一批，到达批次上限或截止时间即刷出
+     */
+    private void runWorker() {
+        Jedis jedis = null;
+        int generation = connectionGeneration.get();
+        List<Command> batch = new ArrayList<>(maxBatch);
+
+        while (running || !queue.isEmpty()) {
+            try {
+                Command first = queue.poll(100, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+                queue.drainTo(batch, maxBatch - batch.size());
+
+                long deadline = System.nanoTime() + flushNanos;
+                while (batch.size() < maxBatch) {
+                    long remaining = deadline - System.nanoTime();
+                    if (remaining <= 0) {
+                        break;
+                    }
+                    Command next = queue.poll(remaining, TimeUnit.NANOSECONDS);
+                    if (next == null) {
+                        break;
+                    }
+                    batch.add(next);
+                    queue.drainTo(batch, maxBatch - batch.size());
+                }
+
+                if (jedis != null && generation != connectionGeneration.get()) {
+                    closeQuietly(jedis);
+                    jedis = null;
+                }
+                if (jedis == null) {
+                    generation = connectionGeneration.get();
+                    jedis = connect();
+                }
+                flush(jedis, batch);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                failAll(batch, e);
+                break;
+            } catch (Exception e) {
+                logger.error("Redis pipeline刷出失败, 批次大小: {}", batch.size(), e);
+                failAll(batch, e);
+                // 连接可能已损坏，下一批重新建立连接
+                closeQuietly(jedis);
+                jedis = null;
+            } finally {
+                batch.clear();
+            }
+        }
+
+        closeQuietly(jedis);
+    }
+
+    private void flush(Jedis jedis, List<Command> batch) {
+        Pipeline pipeline = jedis.pipelined();
+        List<Supplier<Boolean>> results = new ArrayList<>(batch.size());
+        for (Command command : batch) {
+            results.add(command.op.apply(pipeline));
+        }
+        pipeline.sync();
+
+        for (int i = 0; i < batch.size(); i++) {
+            Command command = batch.get(i);
+            try {
+                command.future.complete(results.get(i).get());
+            } catch (Exception e) {
+                command.future.completeExceptionally(e);
+            }
+        }
+        logger.debug("Redis pipeline刷出: {} 条命令", batch.size());
+    }
+
+    private Jedis connect() {
+        HostAndPort target = address.get();
+        Jedis jedis = new Jedis(target.getHost(), target.getPort(), timeout);
+        try {
+            if (password != null && !password.trim().isEmpty()) {
+                jedis.auth(password);
+            }
+            if (database != 0) {
+                jedis.select(database);
+            }
+            return jedis;
+        } catch (RuntimeException e) {
+            closeQuietly(jedis);
+            throw e;
+        }
+    }
+
+    private void failAll(List<Command> batch, Exception cause) {
+        for (Command command : batch) {
+            command.future.completeExceptionally(cause);
+        }
+    }
+
+    private void closeQuietly(Jedis jedis) {
+        if (jedis != null) {
+            try {
+                jedis.close();
+            } catch (Exception e) {
+                logger.debug("关闭调度器连接失败", e);
+            }
+        }
+    }
+
+    /**
+     * 关闭调度器：停止接收新命令，等待队列中已有命令刷出后退出
+     */
+    public void close() {
+        running = false;
+        for (Thread worker : workers) {
+            try {
+                worker.join(TimeUnit.SECONDS.toMillis(5));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            }
+        }
+
+        Command leftover;
+        while ((leftover = queue.poll()) != null) {
+            leftover.future.completeExceptionally(new IllegalStateException("Redis pipeline调度器已关闭"));
+        }
+        logger.info("Redis pipeline调度器已关闭");
+    }
+}
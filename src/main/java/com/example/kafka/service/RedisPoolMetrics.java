@@ -0,0 +1,112 @@
+package com.example.kafka.service;
+
+/**
+ * Redis连接池指标快照
+ * 连接数与借还计数来自commons-pool，借用等待与命令延迟直方图由 {@link RedisService} 自行记录。
+ * 连接池不支持的计数（如Sentinel模式下的创建/销毁数）为-1。
+ */
+public class RedisPoolMetrics {
+    private final int active;
+    private final int idle;
+    private final int waiters;
+    private final int maxTotal;
+    private final long createdCount;
+    private final long destroyedCount;
+    private final long meanBorrowWaitMillis;
+    private final long maxBorrowWaitMillis;
+    private final LatencyHistogram borrowWait;
+    private final LatencyHistogram commandLatency;
+
+    RedisPoolMetrics(int active, int idle, int waiters, int maxTotal, long createdCount, long destroyedCount,
+                     long meanBorrowWaitMillis, long maxBorrowWaitMillis,
+                     LatencyHistogram borrowWait, LatencyHistogram commandLatency) {
+        this.active = active;
+        this.idle = idle;
+        this.waiters = waiters;
+        this.maxTotal = maxTotal;
+        this.createdCount = createdCount;
+        this.destroyedCount = destroyedCount;
+        this.meanBorrowWaitMillis = meanBorrowWaitMillis;
+        this.maxBorrowWaitMillis = maxBorrowWaitMillis;
+        this.borrowWait = borrowWait;
+        this.commandLatency = commandLatency;
+    }
+
+    public int getActive() {
+        return active;
+    }
+
+    public int getIdle() {
+        return idle;
+    }
+
+    /**
+     * 正在等待连接的线程数，持续大于0说明连接池已饱和，继续恶化将出现 Could not get a resource from the pool
+     */
+    public int getWaiters() {
+        return waiters;
+    }
+
+    /**
+     * 当前 maxTotal，未知时为-1
+     */
+    public int getMaxTotal() {
+        return maxTotal;
+    }
+
+    /**
+     * 连接利用率（active / maxTotal），maxTotal未知时为-1
+     */
+    public double getUtilisation() {
+        return maxTotal > 0 ? active * 1.0 / maxTotal : -1;
+    }
+
+    public long getCreatedCount() {
+        return createdCount;
+    }
+
+    public long getDestroyedCount() {
+        return destroyedCount;
+    }
+
+    /**
+     * commons-pool统计的最近借用平均等待时间（毫秒）
+     */
+    public long getMeanBorrowWaitMillis() {
+        return meanBorrowWaitMillis;
+    }
+
+    public long getMaxBorrowWaitMillis() {
+        return maxBorrowWaitMillis;
+    }
+
+    /**
+     * 借用连接等待时间直方图（累计）
+     */
+    public LatencyHistogram getBorrowWait() {
+        return borrowWait;
+    }
+
+    /**
+     * Redis命令往返时间直方图（累计，不含借用等待）
+     */
+    public LatencyHistogram getCommandLatency() {
+        return commandLatency;
+    }
+
+    @Override
+    public String toString() {
+        return "RedisPoolMetrics{" +
+                "active=" + active +
+                ", idle=" + idle +
+                ", waiters=" + waiters +
+                ", maxTotal=" + maxTotal +
+                ", created=" + createdCount +
+                ", destroyed=" + destroyedCount +
+                ", meanBorrowWaitMillis=" + meanBorrowWaitMillis +
+                ", maxBorrowWaitMillis=" + maxBorrowWaitMillis +
+                ", borrowWait={" + borrowWait + '}' +
+                ", commandLatency={" + commandLatency + '}' +
+                '}';
+    }
+}
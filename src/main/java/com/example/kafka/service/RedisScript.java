@@ -0,0 +1,72 @@
+package com.example.kafka.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import redis.clients.jedis.Jedis;
+import redis.clients.jedis.exceptions.JedisNoScriptException;
+import redis.clients.jedis.util.SafeEncoder;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Lua脚本
+ * SHA1在本地计算，调用时直接 EVALSHA，只发送摘要；服务端脚本缓存中不存在（首次调用、重启或 SCRIPT FLUSH 后）
+ * 返回 NOSCRIPT 时改用 EVAL 发送完整脚本，EVAL 同时把脚本放入缓存，之后的调用恢复为 EVALSHA。
+ */
+final class RedisScript {
+    private static final Logger logger = LoggerFactory.getLogger(RedisScript.class);
+
+    private final String name;
+    private final byte[] script;
+    private final byte[] sha1;
+    private final AtomicLong noScriptCount = new AtomicLong();
+
+    RedisScript(String name, String source) {
+        this.name = name;
+        this.script = SafeEncoder.encode(source);
+        this.sha1 = SafeEncoder.encode(sha1Hex(script));
+    }
+
+    /**
+     * 执行脚本
+     */
+    Object eval(Jedis jedis, List<byte[]> keys, List<byte[]> args) {
+        try {
+            return jedis.evalsha(sha1, keys, args);
+        } catch (JedisNoScriptException e) {
+            if (noScriptCount.incrementAndGet() == 1) {
+                logger.info("Lua脚本 {} 不在服务端缓存中，使用EVAL加载: sha1={}", name, SafeEncoder.encode(sha1));
+            }
+            return jedis.eval(script, keys, args);
+        }
+    }
+
+    /**
+     * 因NOSCRIPT改用EVAL的次数（持续增长说明服务端频繁清空脚本缓存）
+     */
+    long getNoScriptCount() {
+        return noScriptCount.get();
+    }
+
+    private static String sha1Hex(byte[] data) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-1").digest(data);
+            StringBuilder hex = new StringBuilder(digest.length * 2);
+            for (byte b : digest) {
+                hex.append(Character.forDigit((b >> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+            }
+            return hex.toString();
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-1不可用", e);
+        }
+    }
+
+    @Override
+    public String toString() {
+        return name + "{sha1=" + new String(sha1, StandardCharsets.US_ASCII) + ", noScript=" + noScriptCount.get() + '}';
+    }
+}
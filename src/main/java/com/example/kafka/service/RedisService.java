@@ -2,68 +2,357 @@ package com.example.kafka.service;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import redis.clients.jedis.HostAndPort;
 import redis.clients.jedis.Jedis;
-import redis.clients.jedis.JedisPool;
+import redis.clients.jedis.JedisPoolAbstract;
 import redis.clients.jedis.JedisPoolConfig;
+import redis.clients.jedis.JedisSentinelPool;
+import redis.clients.jedis.Pipeline;
+import redis.clients.jedis.exceptions.JedisConnectionException;
 
+import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.Properties;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import java.util.function.Supplier;
 
 /**
  * Redis服务类，用于消息去重
  */
-public class RedisService {
+public class RedisService implements DedupStore {
     private static final Logger logger = LoggerFactory.getLogger(RedisService.class);
-    private static final String UUID_PREFIX = "message:uuid:";
 
-    private JedisPool jedisPool;
+    /** 单次Lua脚本预占的最大UUID数，脚本执行期间Redis不处理其他命令，批次过大会拉高其他客户端的延迟 */
+    private static final int SCRIPT_BATCH_SIZE = 500;
+
+    private JedisPoolAbstract jedisPool;
     private int expireSeconds;
+    private int leaseSeconds;
+    private int timeout;
+    private RedisPipelineDispatcher dispatcher;
+    private LocalUuidIndex nearCache;
+    private TrackingNearCache trackingCache;
+    private NearCacheSnapshotter nearCacheSnapshotter;
+    private DedupLayout layout;
+    private ReplicaReadRouter replicaRouter;
+    private SentinelFailoverMonitor failoverMonitor;
+    private AdaptivePoolSizer poolSizer;
+    private final LatencyHistogram borrowWait = new LatencyHistogram();
+    private final LatencyHistogram commandLatency = new LatencyHistogram();
 
     public RedisService() {
-        initJedisPool();
+        this(loadProperties());
     }
 
     /**
-     * 初始化Jedis连接池
+     * 使用指定配置连接 redis.host / redis.port（测试中可在 {@link #loadProperties()} 的结果上覆盖个别配置）
+     *
+     * @param props 配置
+     */
+    public RedisService(Properties props) {
+        initJedisPool(props, props.getProperty("redis.host", "localhost"),
+            Integer.parseInt(props.getProperty("redis.port", "6379")));
+    }
+
+    /**
+     * 连接指定的Redis节点（分片部署中每个分片一个实例），其余参数取自配置
+     *
+     * @param props 配置
+     * @param host  Redis主机
+     * @param port  Redis端口
      */
-    private void initJedisPool() {
+    public RedisService(Properties props, String host, int port) {
+        initJedisPool(props, host, port);
+    }
+
+    /**
+     * 加载配置文件
+     */
+    public static Properties loadProperties() {
         Properties props = new Properties();
-        try (InputStream input = getClass().getClassLoader().getResourceAsStream("application.properties")) {
+        try (InputStream input = RedisService.class.getClassLoader().getResourceAsStream("application.properties")) {
             if (input == null) {
                 logger.error("无法找到配置文件 application.properties");
                 throw new RuntimeException("配置文件不存在");
             }
             props.load(input);
+            return props;
+        } catch (IOException e) {
+            logger.error("加载配置文件失败", e);
+            throw new RuntimeException("加载配置文件失败", e);
+        }
+    }
+
+    /**
+     * 初始化Jedis连接池
+     */
+    private void initJedisPool(Properties props, String host, int port) {
+        this.timeout = Integer.parseInt(props.getProperty("redis.timeout", "3000"));
+        int database = Integer.parseInt(props.getProperty("redis.database", "0"));
+        String password = props.getProperty("redis.password");
+        this.expireSeconds = Integer.parseInt(props.getProperty("redis.uuid.expire.seconds", "604800"));
+        this.leaseSeconds = Integer.parseInt(props.getProperty("redis.uuid.lease.seconds", "30"));
+        // 键编码：string为原有格式，binary为17字节二进制键（legacyRead兼容读取原有字符串键）
+        DedupKeyCodec keyCodec = new DedupKeyCodec(
+            DedupKeyCodec.Encoding.valueOf(props.getProperty("redis.key.encoding", "string").toUpperCase()),
+            Boolean.parseBoolean(props.getProperty("redis.key.legacyRead", "true")));
+        this.layout = createLayout(props, keyCodec);
+
+        JedisPoolConfig poolConfig = createPoolConfig(props);
+
+        String poolPassword = password != null && !password.trim().isEmpty() ? password : null;
+        HostAndPort master;
+        if (Boolean.parseBoolean(props.getProperty("redis.sentinel.enabled", "false"))) {
+            // Sentinel模式：由Sentinel发现主节点，连接池在 +switch-master 时切换到新主节点
+            String masterName = props.getProperty("redis.sentinel.masterName", "mymaster");
+            List<String> sentinels = splitNodes(props.getProperty("redis.sentinel.nodes", "localhost:26379"));
+            JedisSentinelPool sentinelPool = new JedisSentinelPool(masterName, new HashSet<>(sentinels), poolConfig,
+                timeout, poolPassword, database);
+            jedisPool = sentinelPool;
+            master = sentinelPool.getCurrentHostMaster();
+            // 快速失败只在熔断器能接住失败时有意义：没有熔断器时，快速失败期间的所有发送都会被丢弃
+            boolean circuitEnabled = Boolean.parseBoolean(props.getProperty("message.circuit.enabled", "false"));
+            long failFastMaxMillis = Long.parseLong(
+                props.getProperty("redis.sentinel.failFastMaxMillis", circuitEnabled ? "15000" : "0"));
+            if (failFastMaxMillis > 0 && !circuitEnabled) {
+                logger.warn("redis.sentinel.failFastMaxMillis={} 但未启用熔断器（message.circuit.enabled），"
+                    + "主节点下线后的快速失败期间所有去重调用失败、消息不会发送", failFastMaxMillis);
+            }
+            failoverMonitor = new SentinelFailoverMonitor(masterName, sentinels, master, timeout,
+                failFastMaxMillis, this::onMasterSwitch);
+        } else {
+            // stripes>1：按线程分条带的多个连接池，降低高并发下单个连接池的锁竞争
+            int stripes = Integer.parseInt(props.getProperty("redis.pool.stripes", "1"));
+            jedisPool = stripes > 1
+                ? new StripedJedisPool(poolConfig, host, port, timeout, poolPassword, database, stripes)
+                : new TunableJedisPool(poolConfig, host, port, timeout, poolPassword, database);
+            master = new HostAndPort(host, port);
+        }
+
+        logger.info("Redis连接池初始化成功: {}, maxTotal={}, maxWaitMillis={}ms, testOnBorrow={}, 空闲检查间隔={}ms",
+            master, poolConfig.getMaxTotal(), poolConfig.getMaxWaitMillis(),
+            poolConfig.getTestOnBorrow(), poolConfig.getTimeBetweenEvictionRunsMillis());
+        warmUp(poolConfig.getMinIdle());
+
+        // 可选：按借用等待、利用率和命令延迟在运行期调整 maxTotal / minIdle
+        if (Boolean.parseBoolean(props.getProperty("redis.pool.adaptive.enabled", "false"))) {
+            if (jedisPool instanceof ResizablePool) {
+                poolSizer = new AdaptivePoolSizer((ResizablePool) jedisPool,
+                    Integer.parseInt(props.getProperty("redis.pool.adaptive.minTotal", "4")),
+                    Integer.parseInt(props.getProperty("redis.pool.adaptive.maxTotal", "64")),
+                    Long.parseLong(props.getProperty("redis.pool.adaptive.intervalMillis", "1000")),
+                    Long.parseLong(props.getProperty("redis.pool.adaptive.growWaitMillis", "5")),
+                    Double.parseDouble(props.getProperty("redis.pool.adaptive.highUtilisation", "0.8")),
+                    Double.parseDouble(props.getProperty("redis.pool.adaptive.lowUtilisation", "0.3")),
+                    Integer.parseInt(props.getProperty("redis.pool.adaptive.shrinkAfterIntervals", "10")),
+                    Long.parseLong(props.getProperty("redis.pool.adaptive.slowCommandMillis", "50")));
+            } else {
+                logger.warn("当前连接池不支持运行期调整容量（Sentinel模式），忽略 redis.pool.adaptive.enabled");
+            }
+        }
+
+        // 可选：去重命令走自动pipeline调度器，不再逐次借用连接池连接
+        if (Boolean.parseBoolean(props.getProperty("redis.dispatcher.enabled", "false"))) {
+            dispatcher = new RedisPipelineDispatcher(
+                failoverMonitor != null ? failoverMonitor::getCurrentMaster : () -> master, timeout, password, database,
+                Integer.parseInt(props.getProperty("redis.dispatcher.connections", "2")),
+                Integer.parseInt(props.getProperty("redis.dispatcher.maxBatch", "256")),
+                Long.parseLong(props.getProperty("redis.dispatcher.flushMicros", "200")),
+                Integer.parseInt(props.getProperty("redis.dispatcher.queueSize", "10000")));
+        }
+
+        // 可选：存在性检查发往副本，写入仍走主节点
+        if (Boolean.parseBoolean(props.getProperty("redis.replica.enabled", "false"))) {
+            replicaRouter = new ReplicaReadRouter(jedisPool, splitNodes(props.getProperty("redis.replica.nodes", "")),
+                poolConfig, timeout, poolPassword, database,
+                Long.parseLong(props.getProperty("redis.replica.maxLagBytes", "1048576")),
+                Long.parseLong(props.getProperty("redis.replica.checkIntervalMillis", "1000")));
+        }
 
-            String host = props.getProperty("redis.host", "localhost");
-            int port = Integer.parseInt(props.getProperty("redis.port", "6379"));
-            int timeout = Integer.parseInt(props.getProperty("redis.timeout", "3000"));
-            int database = Integer.parseInt(props.getProperty("redis.database", "0"));
-            String password = props.getProperty("redis.password");
-            this.expireSeconds = Integer.parseInt(props.getProperty("redis.uuid.expire.seconds", "604800"));
-
-            JedisPoolConfig poolConfig = new JedisPoolConfig();
-            // 从配置文件读取连接池参数
-            poolConfig.setMaxTotal(Integer.parseInt(props.getProperty("redis.pool.maxTotal", "20")));
-            poolConfig.setMaxIdle(Integer.parseInt(props.getProperty("redis.pool.maxIdle", "10")));
-            poolConfig.setMinIdle(Integer.parseInt(props.getProperty("redis.pool.minIdle", "5")));
-            poolConfig.setMaxWaitMillis(Long.parseLong(props.getProperty("redis.pool.maxWaitMillis", "3000")));
-            poolConfig.setTestOnBorrow(Boolean.parseBoolean(props.getProperty("redis.pool.testOnBorrow", "true")));
-            poolConfig.setTestWhileIdle(Boolean.parseBoolean(props.getProperty("redis.pool.testWhileIdle", "false")));
-
-            if (password != null && !password.trim().isEmpty()) {
-                jedisPool = new JedisPool(poolConfig, host, port, timeout, password, database);
+        // 可选：进程内近端缓存，重复UUID直接在本地判定，过期时间与去重窗口对齐
+        if (Boolean.parseBoolean(props.getProperty("redis.nearcache.enabled", "false"))) {
+            int maxSize = Integer.parseInt(props.getProperty("redis.nearcache.maxSize", "100000"));
+            String type = props.getProperty("redis.nearcache.type", "heap");
+            // offheap：UUID以128位存放在堆外表中，适合千万级条目
+            nearCache = "offheap".equalsIgnoreCase(type)
+                ? new OffHeapUuidSet(maxSize, expireSeconds)
+                : new UuidNearCache(maxSize, expireSeconds);
+            logger.info("UUID近端缓存已启用: type={}, maxSize={}, ttl={}秒", type, maxSize, expireSeconds);
+
+            // 可选：定时快照近端缓存，重启时并行加载，避免冷启动期间所有查询落到Redis
+            if (Boolean.parseBoolean(props.getProperty("redis.nearcache.snapshot.enabled", "false"))) {
+                // 文件名带上本实例的节点地址：sharded模式下每个分片都是一个RedisService，各自写入自己的快照
+                String snapshotPath = props.getProperty("redis.nearcache.snapshot.path", "data/nearcache.snapshot")
+                    + "." + host + "-" + port;
+                nearCacheSnapshotter = new NearCacheSnapshotter(nearCache, new File(snapshotPath),
+                    Long.parseLong(props.getProperty("redis.nearcache.snapshot.intervalSeconds", "60")),
+                    Long.parseLong(props.getProperty("redis.nearcache.snapshot.maxAgeSeconds", "3600")),
+                    Integer.parseInt(props.getProperty("redis.nearcache.snapshot.loadThreads",
+                        String.valueOf(Runtime.getRuntime().availableProcessors()))));
+                nearCacheSnapshotter.restore();
+            }
+        }
+
+        // 可选：CLIENT TRACKING 服务端辅助失效，存在与不存在的结论都缓存，其他节点写入时由Redis通知失效
+        if (Boolean.parseBoolean(props.getProperty("redis.nearcache.tracking.enabled", "false"))) {
+            if (layout instanceof KeyDedupLayout) {
+                trackingCache = new TrackingNearCache(keyCodec,
+                    Integer.parseInt(props.getProperty("redis.nearcache.tracking.maxSize", "100000")),
+                    this::borrowResource,
+                    () -> {
+                        HostAndPort address = failoverMonitor != null ? failoverMonitor.getCurrentMaster() : master;
+                        Jedis jedis = new Jedis(address.getHost(), address.getPort(), timeout);
+                        if (poolPassword != null) {
+                            jedis.auth(poolPassword);
+                        }
+                        return jedis;
+                    });
             } else {
-                jedisPool = new JedisPool(poolConfig, host, port, timeout, null, database);
+                logger.warn("服务端辅助失效近端缓存只支持 key 存储模式，忽略 redis.nearcache.tracking.enabled");
             }
+        }
+    }
 
-            logger.info("Redis连接池初始化成功: {}:{}, maxTotal={}, maxWaitMillis={}ms",
-                host, port, poolConfig.getMaxTotal(), poolConfig.getMaxWaitMillis());
-        } catch (IOException e) {
-            logger.error("加载配置文件失败", e);
-            throw new RuntimeException("加载配置文件失败", e);
+    private static List<String> splitNodes(String nodes) {
+        List<String> result = new ArrayList<>();
+        for (String node : nodes.split(",")) {
+            if (!node.trim().isEmpty()) {
+                result.add(node.trim());
+            }
         }
+        return result;
+    }
+
+    /**
+     * Sentinel主节点切换：连接池由JedisSentinelPool在同一事件上切换，这里重建调度器的独占连接
+     */
+    private void onMasterSwitch(HostAndPort newMaster) {
+        if (dispatcher != null) {
+            dispatcher.reconnect();
+        }
+        logger.warn("Redis主节点已切换到 {}，后续调用使用新主节点", newMaster);
+    }
+
+    /**
+     * 主节点客观下线、尚未完成切换期间快速失败，避免每个线程在失联的主节点上等待超时
+     */
+    private void checkFailover() {
+        if (failoverMonitor != null && failoverMonitor.isFailoverInProgress()) {
+            throw new JedisConnectionException("Redis主节点故障转移中，快速失败");
+        }
+    }
+
+    private Jedis borrowResource() {
+        checkFailover();
+        return getResource();
+    }
+
+    /**
+     * 从连接池借用连接，并记录借用等待时间
+     */
+    private Jedis getResource() {
+        long start = System.nanoTime();
+        try {
+            return jedisPool.getResource();
+        } finally {
+            long elapsed = System.nanoTime() - start;
+            borrowWait.record(elapsed);
+            if (poolSizer != null) {
+                poolSizer.recordBorrowWait(elapsed);
+            }
+        }
+    }
+
+    /**
+     * 记录一次Redis命令往返时间（不含借用等待）
+     */
+    private void recordCommand(long startNanos) {
+        long elapsed = System.nanoTime() - startNanos;
+        commandLatency.record(elapsed);
+        if (poolSizer != null) {
+            poolSizer.recordCommandLatency(elapsed);
+        }
+    }
+
+    private void recordSuccess() {
+        if (failoverMonitor != null) {
+            failoverMonitor.recordSuccess();
+        }
+    }
+
+    /**
+     * 最近一次Sentinel主节点切换到首次成功去重调用的耗时（毫秒），未启用Sentinel或未发生切换时为-1
+     */
+    public long getLastFailoverMillis() {
+        return failoverMonitor != null ? failoverMonitor.getLastFailoverMillis() : -1;
+    }
+
+    /**
+     * 从配置文件读取连接池参数
+     * 默认不在借用时PING（testOnBorrow=false），改由后台驱逐线程定期PING全部空闲连接（testWhileIdle），
+     * 失效连接在一个检查周期内被销毁，并按 minIdle 补建新连接。
+     */
+    static JedisPoolConfig createPoolConfig(Properties props) {
+        JedisPoolConfig poolConfig = new JedisPoolConfig();
+        poolConfig.setMaxTotal(Integer.parseInt(props.getProperty("redis.pool.maxTotal", "20")));
+        poolConfig.setMaxIdle(Integer.parseInt(props.getProperty("redis.pool.maxIdle", "10")));
+        poolConfig.setMinIdle(Integer.parseInt(props.getProperty("redis.pool.minIdle", "5")));
+        poolConfig.setMaxWaitMillis(Long.parseLong(props.getProperty("redis.pool.maxWaitMillis", "3000")));
+        poolConfig.setTestOnBorrow(Boolean.parseBoolean(props.getProperty("redis.pool.testOnBorrow", "false")));
+        poolConfig.setTestWhileIdle(Boolean.parseBoolean(props.getProperty("redis.pool.testWhileIdle", "true")));
+        poolConfig.setTimeBetweenEvictionRunsMillis(
+            Long.parseLong(props.getProperty("redis.pool.timeBetweenEvictionRunsMillis", "5000")));
+        poolConfig.setMinEvictableIdleTimeMillis(
+            Long.parseLong(props.getProperty("redis.pool.minEvictableIdleTimeMillis", "60000")));
+        // -1：每次检查全部空闲连接
+        poolConfig.setNumTestsPerEvictionRun(
+            Integer.parseInt(props.getProperty("redis.pool.numTestsPerEvictionRun", "-1")));
+        return poolConfig;
+    }
+
+    /**
+     * 预先建立 minIdle 个连接，避免启动后的首批请求承担建连开销；Redis暂不可达时只记录警告，由后台检查继续补建
+     */
+    private void warmUp(int minIdle) {
+        if (minIdle <= 0) {
+            return;
+        }
+        try {
+            jedisPool.addObjects(minIdle);
+            logger.info("Redis连接池预热完成: idle={}", jedisPool.getNumIdle());
+        } catch (Exception e) {
+            logger.warn("Redis连接池预热失败，将由后台检查补建连接: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * 根据 redis.storage.mode 创建存储布局
+     * key：每个UUID一个键（默认）；hash：按哈希分桶存入Hash，按时间桶整体过期；
+     * window：按时间窗口写入滚动Set，整窗过期
+     */
+    private DedupLayout createLayout(Properties props, DedupKeyCodec keyCodec) {
+        String mode = props.getProperty("redis.storage.mode", "key");
+        if ("hash".equalsIgnoreCase(mode)) {
+            long timeBucketSeconds = Long.parseLong(props.getProperty("redis.storage.hash.timeBucketSeconds", "86400"));
+            int buckets = Integer.parseInt(props.getProperty("redis.storage.hash.buckets", "65536"));
+            logger.info("去重存储模式: hash, timeBucketSeconds={}, buckets={}", timeBucketSeconds, buckets);
+            return new HashBucketDedupLayout(keyCodec, expireSeconds, timeBucketSeconds, buckets);
+        }
+        if ("window".equalsIgnoreCase(mode)) {
+            long windowSeconds = Long.parseLong(props.getProperty("redis.storage.window.seconds", "86400"));
+            logger.info("去重存储模式: window, windowSeconds={}", windowSeconds);
+            return new TimeWindowDedupLayout(keyCodec, expireSeconds, windowSeconds);
+        }
+        logger.info("去重存储模式: key, encoding={}", keyCodec.getEncoding());
+        return new KeyDedupLayout(keyCodec, expireSeconds);
     }
 
     /**
@@ -72,19 +361,32 @@ public class RedisService {
      * @param uuid 消息UUID
      * @return true-已存在，false-不存在
      */
+    @Override
     public boolean isUuidExists(String uuid) {
-        try (Jedis jedis = jedisPool.getResource()) {
-            String key = UUID_PREFIX + uuid;
+        if (nearCache != null && nearCache.contains(uuid)) {
+            logger.debug("检查UUID: {}, 近端缓存命中", uuid);
+            return true;
+        }
 
-            // ⭐ 模拟慢速Redis操作（用于压力测试，让连接长时间被占用）
-            try {
-                Thread.sleep(200);
-            } catch (InterruptedException e) {
-                Thread.currentThread().interrupt();
+        if (trackingCache != null) {
+            Boolean cached = trackingCache.get(uuid);
+            if (cached != null) {
+                logger.debug("检查UUID: {}, 跟踪缓存命中: {}", uuid, cached);
+                return cached;
             }
+        }
 
-            Boolean exists = jedis.exists(key);
+        try {
+            boolean exists;
+            if (trackingCache != null) {
+                // 在开启跟踪的主节点连接上读取，结果进入跟踪缓存
+                exists = trackingCache.load(uuid, jedis -> runPipelined(jedis, p -> layout.queueExists(p, uuid)));
+                recordSuccess();
+            } else {
+                exists = executeRead(p -> layout.queueExists(p, uuid));
+            }
             logger.debug("检查UUID: {}, 结果: {}", uuid, exists);
+            // 查到的键可能只是其他节点持有的租约（发送失败后会被释放），不写入近端缓存
             return exists;
         } catch (Exception e) {
             logger.error("检查UUID失败: {}", uuid, e);
@@ -94,35 +396,323 @@ public class RedisService {
 
     /**
      * 保存UUID到Redis（标记消息已发送）
+     * 若UUID已通过 {@link #reserveUuid(String)} 预占，保存后租约被正式记录取代，保留完整去重窗口
      *
      * @param uuid 消息UUID
      * @return true-保存成功，false-保存失败
      */
+    @Override
     public boolean saveUuid(String uuid) {
-        try (Jedis jedis = jedisPool.getResource()) {
-            String key = UUID_PREFIX + uuid;
-            String value = String.valueOf(System.currentTimeMillis());
+        long timestamp = System.currentTimeMillis();
+        try {
+            boolean success = execute(p -> layout.queueSave(p, uuid, timestamp));
+            onSaveResult(uuid, success);
+            return success;
+        } catch (Exception e) {
+            logger.error("保存UUID失败: {}", uuid, e);
+            throw new RuntimeException("Redis操作失败", e);
+        }
+    }
 
-            // ⭐ 模拟慢速Redis操作（用于压力测试，让连接长时间被占用）
-            try {
-                Thread.sleep(200);
-            } catch (InterruptedException e) {
-                Thread.currentThread().interrupt();
+    private void onSaveResult(String uuid, boolean success) {
+        invalidateTracking(uuid);
+        if (success) {
+            if (nearCache != null) {
+                nearCache.put(uuid);
             }
+            logger.info("UUID保存成功: {}, 过期时间: {}秒", uuid, expireSeconds);
+        } else {
+            logger.warn("UUID保存失败: {}", uuid);
+        }
+    }
 
-            // 设置键值对，并设置过期时间
-            String result = jedis.setex(key, expireSeconds, value);
-            boolean success = "OK".equals(result);
+    /**
+     * 本进程的写入改变了UUID的存在性，立即移除跟踪缓存条目（服务端的失效消息稍后也会到达）
+     */
+    private void invalidateTracking(String uuid) {
+        if (trackingCache != null) {
+            trackingCache.invalidate(uuid);
+        }
+    }
 
-            if (success) {
-                logger.info("UUID保存成功: {}, 过期时间: {}秒", uuid, expireSeconds);
+    /**
+     * 执行单个去重操作：启用调度器时合并到共享pipeline，否则借用一个连接池连接发送
+     *
+     * @param op 向pipeline排入命令的函数
+     */
+    private boolean execute(Function<Pipeline, Supplier<Boolean>> op) throws Exception {
+        checkFailover();
+        boolean result;
+        if (dispatcher != null) {
+            long start = System.nanoTime();
+            result = dispatcher.submit(op).get(timeout, TimeUnit.MILLISECONDS);
+            commandLatency.record(System.nanoTime() - start);
+        } else {
+            try (Jedis jedis = getResource()) {
+                long start = System.nanoTime();
+                result = runPipelined(jedis, op);
+                recordCommand(start);
+            }
+        }
+        recordSuccess();
+        return result;
+    }
+
+    /**
+     * 执行只读操作：启用副本读时优先发往最快的健康副本，否则（或副本不可用时）同 {@link #execute(Function)}
+     * 只服务 isUuidExists / existsBatch；发送路径的预占始终在主节点上执行
+     */
+    private boolean executeRead(Function<Pipeline, Supplier<Boolean>> op) throws Exception {
+        if (replicaRouter != null) {
+            Boolean result = replicaRouter.tryRead(jedis -> runPipelined(jedis, op));
+            if (result != null) {
+                return result;
+            }
+        }
+        return execute(op);
+    }
+
+    private static boolean runPipelined(Jedis jedis, Function<Pipeline, Supplier<Boolean>> op) {
+        Pipeline pipeline = jedis.pipelined();
+        Supplier<Boolean> result = op.apply(pipeline);
+        pipeline.sync();
+        return result.get();
+    }
+
+    /**
+     * 批量检查UUID是否已存在
+     * 整批只借用一次连接，所有命令通过一个pipeline在一次往返内完成；
+     * 启用服务端辅助失效时，缓存未命中的UUID在开启跟踪的主节点连接上读取，结果进入跟踪缓存
+     *
+     * @param uuids 消息UUID集合
+     * @return UUID到是否存在的映射，顺序与入参一致
+     */
+    @Override
+    public Map<String, Boolean> existsBatch(Collection<String> uuids) {
+        Map<String, Boolean> result = new LinkedHashMap<>();
+        if (uuids == null || uuids.isEmpty()) {
+            return result;
+        }
+
+        // 近端缓存或跟踪缓存命中的UUID不再发往Redis
+        List<String> misses = new ArrayList<>(uuids.size());
+        for (String uuid : uuids) {
+            Boolean cached = null;
+            if (nearCache != null && nearCache.contains(uuid)) {
+                cached = Boolean.TRUE;
+            } else if (trackingCache != null) {
+                cached = trackingCache.get(uuid);
+            }
+            if (cached != null) {
+                result.put(uuid, cached);
             } else {
-                logger.warn("UUID保存失败: {}", uuid);
+                result.put(uuid, Boolean.FALSE);
+                misses.add(uuid);
             }
+        }
+        if (misses.isEmpty()) {
+            return result;
+        }
 
-            return success;
+        Function<Jedis, Map<String, Boolean>> reader = jedis -> {
+            Pipeline pipeline = jedis.pipelined();
+            Map<String, Supplier<Boolean>> responses = new LinkedHashMap<>();
+            for (String uuid : misses) {
+                responses.put(uuid, layout.queueExists(pipeline, uuid));
+            }
+            pipeline.sync();
+
+            Map<String, Boolean> found = new LinkedHashMap<>();
+            for (Map.Entry<String, Supplier<Boolean>> entry : responses.entrySet()) {
+                found.put(entry.getKey(), entry.getValue().get());
+            }
+            return found;
+        };
+
+        try {
+            checkFailover();
+            Map<String, Boolean> found = null;
+            if (trackingCache != null) {
+                // 在开启跟踪的主节点连接上读取，结果进入跟踪缓存
+                found = trackingCache.loadAll(misses, reader);
+            } else if (replicaRouter != null) {
+                found = replicaRouter.tryRead(reader);
+            }
+            if (found == null) {
+                try (Jedis jedis = getResource()) {
+                    long start = System.nanoTime();
+                    found = reader.apply(jedis);
+                    recordCommand(start);
+                }
+            }
+            recordSuccess();
+            result.putAll(found);
+            logger.debug("批量检查UUID: {} 个", result.size());
+            return result;
         } catch (Exception e) {
-            logger.error("保存UUID失败: {}", uuid, e);
+            logger.error("批量检查UUID失败, 数量: {}", uuids.size(), e);
+            throw new RuntimeException("Redis操作失败", e);
+        }
+    }
+
+    /**
+     * 批量预占UUID
+     * key 存储模式下通过Lua脚本（EVALSHA）在服务端逐个 SET NX EX，返回预占结果位图，每 {@value #SCRIPT_BATCH_SIZE} 个UUID一次往返；
+     * 其他存储模式在一个pipeline内逐个预占。近端缓存确认已存在的UUID不再发往Redis。
+     *
+     * @param uuids 消息UUID集合
+     * @return UUID到是否预占成功的映射，顺序与入参一致
+     */
+    @Override
+    public Map<String, Boolean> reserveBatch(Collection<String> uuids) {
+        Map<String, Boolean> result = new LinkedHashMap<>();
+        if (uuids == null || uuids.isEmpty()) {
+            return result;
+        }
+
+        List<String> candidates = new ArrayList<>(uuids.size());
+        for (String uuid : uuids) {
+            if (result.containsKey(uuid)) {
+                continue;
+            }
+            result.put(uuid, Boolean.FALSE);
+            boolean known = (nearCache != null && nearCache.contains(uuid))
+                || (trackingCache != null && Boolean.TRUE.equals(trackingCache.get(uuid)));
+            if (!known) {
+                candidates.add(uuid);
+            }
+        }
+        if (candidates.isEmpty()) {
+            return result;
+        }
+
+        long timestamp = System.currentTimeMillis();
+        try (Jedis jedis = borrowResource()) {
+            long start = System.nanoTime();
+            if (layout instanceof KeyDedupLayout) {
+                KeyDedupLayout keyLayout = (KeyDedupLayout) layout;
+                for (int from = 0; from < candidates.size(); from += SCRIPT_BATCH_SIZE) {
+                    List<String> chunk = candidates.subList(from, Math.min(candidates.size(), from + SCRIPT_BATCH_SIZE));
+                    result.putAll(keyLayout.reserveBatch(jedis, chunk, timestamp, leaseSeconds));
+                }
+            } else {
+                Pipeline pipeline = jedis.pipelined();
+                Map<String, Supplier<Boolean>> responses = new LinkedHashMap<>();
+                for (String uuid : candidates) {
+                    responses.put(uuid, layout.queueReserve(pipeline, uuid, timestamp, leaseSeconds));
+                }
+                pipeline.sync();
+                for (Map.Entry<String, Supplier<Boolean>> entry : responses.entrySet()) {
+                    result.put(entry.getKey(), entry.getValue().get());
+                }
+            }
+            recordCommand(start);
+            recordSuccess();
+        } catch (Exception e) {
+            logger.error("批量预占UUID失败, 数量: {}", uuids.size(), e);
+            throw new RuntimeException("Redis操作失败", e);
+        }
+
+        for (String uuid : candidates) {
+            invalidateTracking(uuid);
+        }
+        logger.debug("批量预占UUID: {} 个, 发往Redis {} 个", result.size(), candidates.size());
+        return result;
+    }
+
+    /**
+     * 批量保存UUID到Redis
+     * 整批只借用一次连接，所有命令通过一个pipeline在一次往返内完成
+     *
+     * @param uuidValues UUID到写入值（通常为发送时间戳，binary编码下不写入）的映射
+     * @return 保存成功的UUID数量
+     */
+    @Override
+    public int saveBatch(Map<String, Long> uuidValues) {
+        if (uuidValues == null || uuidValues.isEmpty()) {
+            return 0;
+        }
+
+        try (Jedis jedis = borrowResource()) {
+            long start = System.nanoTime();
+            Pipeline pipeline = jedis.pipelined();
+            Map<String, Supplier<Boolean>> responses = new LinkedHashMap<>();
+            for (Map.Entry<String, Long> entry : uuidValues.entrySet()) {
+                Long value = entry.getValue();
+                long timestamp = value != null ? value : System.currentTimeMillis();
+                responses.put(entry.getKey(), layout.queueSave(pipeline, entry.getKey(), timestamp));
+            }
+            pipeline.sync();
+            recordCommand(start);
+
+            int saved = 0;
+            for (Map.Entry<String, Supplier<Boolean>> entry : responses.entrySet()) {
+                invalidateTracking(entry.getKey());
+                if (entry.getValue().get()) {
+                    if (nearCache != null) {
+                        nearCache.put(entry.getKey());
+                    }
+                    saved++;
+                }
+            }
+            recordSuccess();
+            logger.info("批量保存UUID: {}/{} 成功, 过期时间: {}秒", saved, uuidValues.size(), expireSeconds);
+            return saved;
+        } catch (Exception e) {
+            logger.error("批量保存UUID失败, 数量: {}", uuidValues.size(), e);
+            throw new RuntimeException("Redis操作失败", e);
+        }
+    }
+
+    /**
+     * 预占UUID（SET NX EX），用于发送前的原子去重
+     * 仅当UUID不存在时写入一个短租约，租约过期时间为 redis.uuid.lease.seconds，
+     * Kafka发送成功后由 {@link #saveUuid(String)} 延长为正式过期时间，发送失败则调用 {@link #releaseUuid(String)} 释放
+     *
+     * @param uuid 消息UUID
+     * @return true-预占成功（消息未发送过），false-UUID已存在或已被其他发送方预占
+     */
+    @Override
+    public boolean reserveUuid(String uuid) {
+        if (nearCache != null && nearCache.contains(uuid)) {
+            logger.debug("预占UUID: {}, 近端缓存命中，判定为重复", uuid);
+            return false;
+        }
+        if (trackingCache != null && Boolean.TRUE.equals(trackingCache.get(uuid))) {
+            logger.debug("预占UUID: {}, 跟踪缓存确认已存在，判定为重复", uuid);
+            return false;
+        }
+
+        long timestamp = System.currentTimeMillis();
+        try {
+            boolean reserved = execute(p -> layout.queueReserve(p, uuid, timestamp, leaseSeconds));
+            invalidateTracking(uuid);
+            logger.debug("预占UUID: {}, 结果: {}, 租约: {}秒", uuid, reserved, leaseSeconds);
+            return reserved;
+        } catch (Exception e) {
+            logger.error("预占UUID失败: {}", uuid, e);
+            throw new RuntimeException("Redis操作失败", e);
+        }
+    }
+
+    /**
+     * 释放UUID租约（Kafka发送失败时调用，允许后续重试）
+     *
+     * @param uuid 消息UUID
+     * @return true-释放成功，false-租约已不存在
+     */
+    @Override
+    public boolean releaseUuid(String uuid) {
+        if (nearCache != null) {
+            nearCache.invalidate(uuid);
+        }
+        invalidateTracking(uuid);
+        try {
+            boolean released = execute(p -> layout.queueRelease(p, uuid));
+            logger.debug("释放UUID租约: {}, 结果: {}", uuid, released);
+            return released;
+        } catch (Exception e) {
+            logger.error("释放UUID租约失败: {}", uuid, e);
             throw new RuntimeException("Redis操作失败", e);
         }
     }
@@ -133,23 +723,83 @@ public class RedisService {
      * @param uuid 消息UUID
      * @return true-删除成功，false-删除失败
      */
+    @Override
     public boolean deleteUuid(String uuid) {
-        try (Jedis jedis = jedisPool.getResource()) {
-            String key = UUID_PREFIX + uuid;
-            Long result = jedis.del(key);
-            logger.debug("删除UUID: {}, 结果: {}", uuid, result > 0);
-            return result > 0;
+        if (nearCache != null) {
+            nearCache.invalidate(uuid);
+        }
+        invalidateTracking(uuid);
+        try {
+            boolean deleted = execute(p -> layout.queueDelete(p, uuid));
+            logger.debug("删除UUID: {}, 结果: {}", uuid, deleted);
+            return deleted;
         } catch (Exception e) {
             logger.error("删除UUID失败: {}", uuid, e);
             throw new RuntimeException("Redis操作失败", e);
         }
     }
 
+    /**
+     * 借用一个连接池连接并占用指定时长（供 {@link FaultInjectingDedupStore} 模拟慢速Redis、复现连接池耗尽）
+     */
+    void holdConnection(long millis) {
+        Jedis jedis = getResource();
+        try {
+            FaultInjectingDedupStore.sleep(millis);
+        } finally {
+            jedis.close();
+        }
+    }
+
+    /**
+     * 连接池实时指标：连接数、等待线程数、创建/销毁计数、借用等待与命令延迟直方图
+     * 等待线程数和借用等待上升说明连接池趋于饱和，可在出现 JedisConnectionException 之前发现
+     */
+    public RedisPoolMetrics getPoolMetrics() {
+        ResizablePool resizable = jedisPool instanceof ResizablePool ? (ResizablePool) jedisPool : null;
+        return new RedisPoolMetrics(jedisPool.getNumActive(), jedisPool.getNumIdle(), jedisPool.getNumWaiters(),
+            resizable != null ? resizable.getMaxTotal() : -1,
+            resizable != null ? resizable.getCreatedCount() : -1,
+            resizable != null ? resizable.getDestroyedCount() : -1,
+            jedisPool.getMeanBorrowWaitTimeMillis(), jedisPool.getMaxBorrowWaitTimeMillis(),
+            borrowWait, commandLatency);
+    }
+
+    /**
+     * 获取近端缓存（用于读取命中/未命中/淘汰计数），未启用时返回null
+     */
+    public LocalUuidIndex getNearCache() {
+        return nearCache;
+    }
+
     /**
      * 关闭Redis连接池
      */
+    @Override
     public void close() {
+        if (dispatcher != null) {
+            dispatcher.close();
+        }
+        if (replicaRouter != null) {
+            replicaRouter.close();
+        }
+        if (poolSizer != null) {
+            poolSizer.close();
+        }
+        if (trackingCache != null) {
+            trackingCache.close();
+        }
+        if (nearCacheSnapshotter != null) {
+            nearCacheSnapshotter.close();
+        }
+        if (nearCache != null) {
+            logger.info("UUID近端缓存统计: {}", nearCache);
+        }
+        if (failoverMonitor != null) {
+            failoverMonitor.close();
+        }
         if (jedisPool != null && !jedisPool.isClosed()) {
+            logger.info("Redis连接池指标: {}", getPoolMetrics());
             jedisPool.close();
             logger.info("Redis连接池已关闭");
         }
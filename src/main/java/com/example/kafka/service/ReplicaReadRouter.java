@@ -0,0 +1,192 @@
+package com.example.kafka.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import redis.clients.jedis.HostAndPort;
+import redis.clients.jedis.Jedis;
+import redis.clients.jedis.JedisPool;
+import redis.clients.jedis.JedisPoolAbstract;
+import redis.clients.jedis.JedisPoolConfig;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+/**
+ * 副本读路由
+ * 存在性检查发往延迟最低的健康副本，写入仍然只走主节点。
+ *
+ * 每个副本维护一个EWMA延迟（读请求和后台健康检查共同更新）。后台定时执行 INFO replication，
+ * 副本与主节点链路断开、或复制偏移量落后主节点超过 maxLagBytes 时标记为不健康，不再接收读请求；
+ * 读请求失败也会立即标记不健康，直到下一次检查恢复。没有健康副本时由调用方回退到主节点。
+ *
+ * 复制延迟意味着刚写入主节点的UUID可能在副本上暂时不存在，因此只用于 isUuidExists / existsBatch，
+ * 发送前的原子预占（reserveUuid）始终在主节点上执行，不受影响。
+ *
+ * 注意：MessageService 的发送路径（sendMessage / sendMessages）通过 reserveUuid / reserveBatch 完成去重，
+ * 不经过存在性检查，因此副本读不能分担发送热路径上的主节点负载，只分担 isMessageSent 等独立查询。
+ * 预占前不做副本预检：副本上可能仍留着主节点刚释放的租约，预检会把发送失败后的重试误判为重复而丢弃。
+ */
+class ReplicaReadRouter {
+    private static final Logger logger = LoggerFactory.getLogger(ReplicaReadRouter.class);
+
+    private static final double EWMA_ALPHA = 0.2;
+
+    /**
+     * 单个副本端点
+     */
+    static final class Replica {
+        private final HostAndPort address;
+        private final JedisPool pool;
+        private volatile double ewmaMicros;
+        private volatile boolean healthy;
+        private volatile long lagBytes = -1;
+
+        private Replica(HostAndPort address, JedisPool pool) {
+            this.address = address;
+            this.pool = pool;
+        }
+
+        private void recordLatency(long micros) {
+            double current = ewmaMicros;
+            ewmaMicros = current == 0 ? micros : current + EWMA_ALPHA * (micros - current);
+        }
+
+        @Override
+        public String toString() {
+            return address + "{healthy=" + healthy +
+                    ", ewmaMicros=" + String.format("%.0f", ewmaMicros) +
+                    ", lagBytes=" + lagBytes + '}';
+        }
+    }
+
+    private final JedisPoolAbstract primaryPool;
+    private final List<Replica> replicas = new ArrayList<>();
+    private final long maxLagBytes;
+    private final ScheduledExecutorService checker;
+
+    /**
+     * @param primaryPool         主节点连接池（读取主节点复制偏移量）
+     * @param nodes               副本节点列表，格式 host:port
+     * @param poolConfig          副本连接池配置
+     * @param timeout             连接/读超时（毫秒）
+     * @param password            密码，可为null
+     * @param database            数据库索引
+     * @param maxLagBytes         允许的最大复制偏移量差（字节）
+     * @param checkIntervalMillis 健康检查间隔（毫秒）
+     */
+    ReplicaReadRouter(JedisPoolAbstract primaryPool, List<String> nodes, JedisPoolConfig poolConfig, int timeout,
+                      String password, int database, long maxLagBytes, long checkIntervalMillis) {
+        this.primaryPool = primaryPool;
+        this.maxLagBytes = maxLagBytes;
+        for (String node : nodes) {
+            HostAndPort address = HostAndPort.parseString(node.trim());
+            replicas.add(new Replica(address,
+                new JedisPool(poolConfig, address.getHost(), address.getPort(), timeout, password, database)));
+        }
+
+        checkHealth();
+        this.checker = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "redis-replica-checker");
+            thread.setDaemon(true);
+            return thread;
+        });
+        checker.scheduleWithFixedDelay(this::checkHealth, checkIntervalMillis, checkIntervalMillis, TimeUnit.MILLISECONDS);
+        logger.info("Redis副本读路由已启用: replicas={}, maxLagBytes={}", replicas, maxLagBytes);
+    }
+
+    /**
+     * 在最快的健康副本上执行读操作
+     *
+     * @return 读取结果；没有健康副本或副本读取失败时返回null，由调用方改读主节点
+     */
+    <T> T tryRead(Function<Jedis, T> reader) {
+        Replica replica = fastestHealthy();
+        if (replica == null) {
+            return null;
+        }
+
+        long start = System.nanoTime();
+        try (Jedis jedis = replica.pool.getResource()) {
+            T result = reader.apply(jedis);
+            replica.recordLatency(TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - start));
+            return result;
+        } catch (Exception e) {
+            replica.healthy = false;
+            logger.warn("副本 {} 读取失败，标记为不健康并改读主节点: {}", replica.address, e.getMessage());
+            return null;
+        }
+    }
+
+    private Replica fastestHealthy() {
+        Replica best = null;
+        for (Replica replica : replicas) {
+            if (replica.healthy && (best == null || replica.ewmaMicros < best.ewmaMicros)) {
+                best = replica;
+            }
+        }
+        return best;
+    }
+
+    /**
+     * 读取主节点复制偏移量，逐个检查副本的链路状态与偏移量差
+     */
+    private void checkHealth() {
+        long primaryOffset;
+        try (Jedis jedis = primaryPool.getResource()) {
+            primaryOffset = parseLong(jedis.info("replication"), "master_repl_offset");
+        } catch (Exception e) {
+            // 主节点不可达时无法判断延迟，保持副本现有状态
+            logger.warn("读取主节点复制偏移量失败: {}", e.getMessage());
+            return;
+        }
+
+        for (Replica replica : replicas) {
+            long start = System.nanoTime();
+            try (Jedis jedis = replica.pool.getResource()) {
+                String info = jedis.info("replication");
+                replica.recordLatency(TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - start));
+
+                boolean linkUp = info.contains("master_link_status:up");
+                long replicaOffset = parseLong(info, "slave_repl_offset");
+                replica.lagBytes = replicaOffset >= 0 && primaryOffset >= 0 ? Math.max(0, primaryOffset - replicaOffset) : -1;
+                boolean healthy = linkUp && replica.lagBytes >= 0 && replica.lagBytes <= maxLagBytes;
+                if (healthy != replica.healthy) {
+                    logger.info("副本 {} 状态变化: healthy={}, linkUp={}, lagBytes={}",
+                        replica.address, healthy, linkUp, replica.lagBytes);
+                }
+                replica.healthy = healthy;
+            } catch (Exception e) {
+                if (replica.healthy) {
+                    logger.warn("副本 {} 健康检查失败: {}", replica.address, e.getMessage());
+                }
+                replica.healthy = false;
+            }
+        }
+    }
+
+    private static long parseLong(String info, String field) {
+        for (String line : info.split("\r\n")) {
+            if (line.startsWith(field + ":")) {
+                return Long.parseLong(line.substring(field.length() + 1).trim());
+            }
+        }
+        return -1;
+    }
+
+    @Override
+    public String toString() {
+        return "ReplicaReadRouter" + replicas;
+    }
+
+    void close() {
+        checker.shutdownNow();
+        for (Replica replica : replicas) {
+            replica.pool.close();
+        }
+        logger.info("Redis副本读路由已关闭: {}", replicas);
+    }
+}
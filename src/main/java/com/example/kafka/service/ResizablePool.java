@@ -0,0 +1,34 @@
+package com.example.kafka.service;
+
+/**
+ * 可在运行期调整容量、并能读取底层commons-pool统计的连接池，供 {@link AdaptivePoolSizer} 和连接池指标使用
+ */
+interface ResizablePool {
+
+    int getMaxTotal();
+
+    int getMinIdle();
+
+    /**
+     * 调整连接池容量；maxIdle 与 maxTotal 保持一致，避免突发后归还的连接被立即销毁
+     */
+    void resize(int maxTotal, int minIdle);
+
+    int getNumActive();
+
+    int getNumIdle();
+
+    int getNumWaiters();
+
+    long getMeanBorrowWaitTimeMillis();
+
+    /**
+     * 累计创建的连接数
+     */
+    long getCreatedCount();
+
+    /**
+     * 累计销毁的连接数（包括空闲检查失败、超过maxIdle、归还时已损坏的连接）
+     */
+    long getDestroyedCount();
+}
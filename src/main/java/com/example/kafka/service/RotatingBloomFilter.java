@@ -0,0 +1,274 @@
+package com.example.kafka.service;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * 按时间轮转的可扩展布隆过滤器，记录本进程已保存过的UUID
+ * 过滤器判定"不存在"时，UUID一定没有被本进程保存过，可跳过Redis查询；判定"可能存在"时仍需查询Redis。
+ *
+ * 时间维度：保留 generations 代，每代覆盖 window / (generations - 1)，最老的一代整体丢弃，
+ * 保证任一UUID在插入后至少 window 时长内可被查到。
+ * 容量维度：每代由若干切片组成，当前切片写满后追加容量翻倍、误判率减半的新切片（Scalable Bloom Filter）。
+ */
+public class RotatingBloomFilter {
+    private static final double LN2 = Math.log(2);
+    private static final int LOCK_STRIPES = 64;
+
+    private final long sliceCapacity;
+    private final double sliceFpp;
+    private final long generationMillis;
+    private final int generations;
+    private final long createdAt;
+    private final Object[] locks = new Object[LOCK_STRIPES];
+
+    /** 按时间从新到旧排列的各代，整体替换以便无锁读取 */
+    private volatile List<Generation> generationList;
+    private volatile long currentGenerationStart;
+    private final AtomicLong insertions = new AtomicLong();
+
+    /**
+     * @param expectedInsertions 单代预期插入量（首个切片容量）
+     * @param fpp                首个切片的目标误判率
+     * @param windowMillis       去重窗口（毫秒）
+     * @param generations        保留代数，至少为2
+     */
+    public RotatingBloomFilter(long expectedInsertions, double fpp, long windowMillis, int generations) {
+        this.sliceCapacity = Math.max(1, expectedInsertions);
+        this.sliceFpp = fpp;
+        this.generations = Math.max(2, generations);
+        this.generationMillis = Math.max(1, windowMillis / (this.generations - 1));
+        this.createdAt = System.currentTimeMillis();
+        for (int i = 0; i < LOCK_STRIPES; i++) {
+            locks[i] = new Object();
+        }
+
+        List<Generation> initial = new ArrayList<>();
+        initial.add(new Generation(new Slice(sliceCapacity, sliceFpp)));
+        this.generationList = initial;
+        this.currentGenerationStart = createdAt;
+    }
+
+    /**
+     * 判断UUID是否可能已保存
+     *
+     * @param uuid 消息UUID
+     * @return false-一定未保存过，true-可能保存过
+     */
+    public boolean mightContain(String uuid) {
+        rotateIfNeeded();
+        long[] bits = UuidHashing.toBits(uuid);
+        for (Generation generation : generationList) {
+            if (generation.mightContain(bits[0], bits[1])) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * 记录UUID，返回插入前是否一定不存在
+     * 同一UUID的并发调用互斥，因此最多只有一个调用方得到true
+     *
+     * @param uuid 消息UUID
+     * @return true-插入前一定不存在，false-插入前可能已存在
+     */
+    public boolean putIfAbsent(String uuid) {
+        rotateIfNeeded();
+        long[] bits = UuidHashing.toBits(uuid);
+        synchronized (locks[(int) (bits[0] & (LOCK_STRIPES - 1))]) {
+            List<Generation> current = generationList;
+            for (Generation generation : current) {
+                if (generation.mightContain(bits[0], bits[1])) {
+                    return false;
+                }
+            }
+            current.get(0).put(bits[0], bits[1]);
+        }
+        insertions.incrementAndGet();
+        return true;
+    }
+
+    /**
+     * 记录UUID（已存在时不重复计数）
+     *
+     * @param uuid 消息UUID
+     */
+    public void put(String uuid) {
+        putIfAbsent(uuid);
+    }
+
+    /**
+     * 过滤器已运行的时长（毫秒）
+     */
+    public long getAgeMillis() {
+        return System.currentTimeMillis() - createdAt;
+    }
+
+    /**
+     * 累计插入的UUID数
+     */
+    public long getInsertions() {
+        return insertions.get();
+    }
+
+    /**
+     * 根据各切片填充程度估算的整体误判率
+     */
+    public double getEstimatedFalsePositiveRate() {
+        double notFalsePositive = 1.0;
+        for (Generation generation : generationList) {
+            for (Slice slice : generation.slices) {
+                notFalsePositive *= (1.0 - slice.estimatedFpp());
+            }
+        }
+        return 1.0 - notFalsePositive;
+    }
+
+    /**
+     * 位数组占用的内存（字节）
+     */
+    public long getMemoryBytes() {
+        long bytes = 0;
+        for (Generation generation : generationList) {
+            for (Slice slice : generation.slices) {
+                bytes += slice.words.length() * 8L;
+            }
+        }
+        return bytes;
+    }
+
+    /**
+     * 到达代时长时新建一代并丢弃最老的一代
+     */
+    private void rotateIfNeeded() {
+        long now = System.currentTimeMillis();
+        if (now - currentGenerationStart < generationMillis) {
+            return;
+        }
+        synchronized (this) {
+            if (now - currentGenerationStart < generationMillis) {
+                return;
+            }
+            List<Generation> rotated = new ArrayList<>(generations);
+            rotated.add(new Generation(new Slice(sliceCapacity, sliceFpp)));
+            List<Generation> previous = generationList;
+            for (int i = 0; i < previous.size() && rotated.size() < generations; i++) {
+                rotated.add(previous.get(i));
+            }
+            generationList = rotated;
+            currentGenerationStart = now;
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "RotatingBloomFilter{" +
+                "generations=" + generationList.size() +
+                ", insertions=" + getInsertions() +
+                ", estimatedFpp=" + String.format("%.6f", getEstimatedFalsePositiveRate()) +
+                ", memoryBytes=" + getMemoryBytes() +
+                '}';
+    }
+
+    /**
+     * 一代：若干切片，只向最后一个切片写入
+     */
+    private static final class Generation {
+        private volatile List<Slice> slices;
+
+        private Generation(Slice first) {
+            List<Slice> initial = new ArrayList<>();
+            initial.add(first);
+            this.slices = initial;
+        }
+
+        private boolean mightContain(long h1, long h2) {
+            for (Slice slice : slices) {
+                if (slice.mightContain(h1, h2)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        private void put(long h1, long h2) {
+            List<Slice> current = slices;
+            Slice last = current.get(current.size() - 1);
+            if (last.count.get() >= last.capacity) {
+                synchronized (this) {
+                    current = slices;
+                    last = current.get(current.size() - 1);
+                    if (last.count.get() >= last.capacity) {
+                        List<Slice> grown = new ArrayList<>(current);
+                        last = new Slice(last.capacity * 2, last.fpp / 2);
+                        grown.add(last);
+                        slices = grown;
+                    }
+                }
+            }
+            last.put(h1, h2);
+        }
+    }
+
+    /**
+     * 固定容量的布隆过滤器切片，位操作基于CAS，无需加锁
+     */
+    private static final class Slice {
+        private final long capacity;
+        private final double fpp;
+        private final long bitCount;
+        private final int hashCount;
+        private final AtomicLongArray words;
+        private final AtomicLong count = new AtomicLong();
+
+        private Slice(long capacity, double fpp) {
+            this.capacity = capacity;
+            this.fpp = fpp;
+            long bits = (long) Math.ceil(-capacity * Math.log(fpp) / (LN2 * LN2));
+            int wordCount = (int) Math.min(Integer.MAX_VALUE - 8, Math.max(1, (bits + 63) >>> 6));
+            this.bitCount = wordCount * 64L;
+            this.hashCount = Math.max(1, (int) Math.round(bitCount / (double) capacity * LN2));
+            this.words = new AtomicLongArray(wordCount);
+        }
+
+        private boolean mightContain(long h1, long h2) {
+            long combined = UuidHashing.mix64(h1);
+            long step = UuidHashing.mix64(h2) | 1L;
+            for (int i = 0; i < hashCount; i++) {
+                long index = (combined & Long.MAX_VALUE) % bitCount;
+                if ((words.get((int) (index >>> 6)) & (1L << index)) == 0) {
+                    return false;
+                }
+                combined += step;
+            }
+            return true;
+        }
+
+        private void put(long h1, long h2) {
+            long combined = UuidHashing.mix64(h1);
+            long step = UuidHashing.mix64(h2) | 1L;
+            for (int i = 0; i < hashCount; i++) {
+                long index = (combined & Long.MAX_VALUE) % bitCount;
+                int wordIndex = (int) (index >>> 6);
+                long mask = 1L << index;
+                long word;
+                do {
+                    word = words.get(wordIndex);
+                    if ((word & mask) != 0) {
+                        break;
+                    }
+                } while (!words.compareAndSet(wordIndex, word, word | mask));
+                combined += step;
+            }
+            count.incrementAndGet();
+        }
+
+        private double estimatedFpp() {
+            double fill = 1.0 - Math.exp(-hashCount * (double) count.get() / bitCount);
+            return Math.pow(fill, hashCount);
+        }
+    }
+}
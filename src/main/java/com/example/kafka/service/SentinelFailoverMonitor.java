@@ -0,0 +1,193 @@
+package com.example.kafka.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import redis.clients.jedis.HostAndPort;
+import redis.clients.jedis.Jedis;
+import redis.clients.jedis.JedisPubSub;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
+
+/**
+ * Sentinel故障转移监听
+ * 订阅每个Sentinel的 +odown / -odown / +switch-master 事件：
+ * - +odown：主节点被判定客观下线，进入故障转移期。启用快速失败时，去重调用直接失败，
+ *   不再让每个线程在已失联的主节点上等待 redis.timeout
+ * - +switch-master：新主节点已选出，通知调用方（重建调度器连接等），结束故障转移期并开始计时，
+ *   直到首次成功的去重调用，得到故障转移对业务的实际影响时长
+ *
+ * 多个Sentinel会重复推送同一事件，按主节点地址去重。
+ */
+class SentinelFailoverMonitor {
+    private static final Logger logger = LoggerFactory.getLogger(SentinelFailoverMonitor.class);
+
+    private static final long RECONNECT_DELAY_MILLIS = 1000;
+
+    private final String masterName;
+    private final int timeout;
+    private final long failFastMaxMillis;
+    private final Consumer<HostAndPort> onSwitch;
+    private final AtomicReference<HostAndPort> currentMaster;
+    private final List<Thread> listeners = new ArrayList<>();
+    private final List<JedisPubSub> subscriptions = new ArrayList<>();
+    private volatile boolean running = true;
+
+    /** 客观下线时间（System.nanoTime），0表示不在故障转移期 */
+    private final AtomicLong odownNanos = new AtomicLong();
+    /** 主节点切换时间（System.nanoTime），0表示没有待计时的切换 */
+    private final AtomicLong switchNanos = new AtomicLong();
+    private volatile long lastFailoverMillis = -1;
+    private volatile long lastPromotionMillis = -1;
+    private final AtomicLong failoverCount = new AtomicLong();
+
+    /**
+     * @param masterName        Sentinel中的主节点名称
+     * @param sentinels         Sentinel节点列表，格式 host:port
+     * @param initialMaster     当前主节点
+     * @param timeout           连接超时（毫秒）
+     * @param failFastMaxMillis 快速失败的最长时间（毫秒），超过后即使没有收到 +switch-master 也恢复正常调用；0表示不快速失败
+     * @param onSwitch          主节点切换回调
+     */
+    SentinelFailoverMonitor(String masterName, List<String> sentinels, HostAndPort initialMaster, int timeout,
+                            long failFastMaxMillis, Consumer<HostAndPort> onSwitch) {
+        this.masterName = masterName;
+        this.timeout = timeout;
+        this.failFastMaxMillis = failFastMaxMillis;
+        this.onSwitch = onSwitch;
+        this.currentMaster = new AtomicReference<>(initialMaster);
+
+        for (String sentinel : sentinels) {
+            HostAndPort address = HostAndPort.parseString(sentinel.trim());
+            Thread listener = new Thread(() -> listen(address), "redis-sentinel-" + address);
+            listener.setDaemon(true);
+            listeners.add(listener);
+            listener.start();
+        }
+        logger.info("Sentinel故障转移监听已启动: master={}, sentinels={}, failFastMaxMillis={}",
+            masterName, sentinels, failFastMaxMillis);
+    }
+
+    private void listen(HostAndPort sentinel) {
+        while (running) {
+            JedisPubSub subscription = new JedisPubSub() {
+                @Override
+                public void onMessage(String channel, String message) {
+                    handle(channel, message);
+                }
+            };
+            synchronized (subscriptions) {
+                subscriptions.add(subscription);
+            }
+            try (Jedis jedis = new Jedis(sentinel.getHost(), sentinel.getPort(), timeout)) {
+                // 订阅是阻塞调用，关闭监听时通过 unsubscribe 返回
+                jedis.subscribe(subscription, "+odown", "-odown", "+switch-master");
+            } catch (Exception e) {
+                if (running) {
+                    logger.warn("Sentinel {} 订阅中断，{}ms后重连: {}", sentinel, RECONNECT_DELAY_MILLIS, e.getMessage());
+                    FaultInjectingDedupStore.sleep(RECONNECT_DELAY_MILLIS);
+                }
+            } finally {
+                synchronized (subscriptions) {
+                    subscriptions.remove(subscription);
+                }
+            }
+        }
+    }
+
+    /**
+     * +odown / -odown：master &lt;name&gt; &lt;ip&gt; &lt;port&gt; ...
+     * +switch-master：&lt;name&gt; &lt;old-ip&gt; &lt;old-port&gt; &lt;new-ip&gt; &lt;new-port&gt;
+     */
+    private void handle(String channel, String message) {
+        String[] parts = message.split(" ");
+        if ("+switch-master".equals(channel)) {
+            if (parts.length < 5 || !masterName.equals(parts[0])) {
+                return;
+            }
+            HostAndPort newMaster = new HostAndPort(parts[3], Integer.parseInt(parts[4]));
+            HostAndPort oldMaster = currentMaster.getAndSet(newMaster);
+            if (newMaster.equals(oldMaster)) {
+                return;
+            }
+            long now = System.nanoTime();
+            long odown = odownNanos.getAndSet(0);
+            if (odown != 0) {
+                lastPromotionMillis = TimeUnit.NANOSECONDS.toMillis(now - odown);
+            }
+            switchNanos.set(now);
+            failoverCount.incrementAndGet();
+            logger.warn("Sentinel主节点切换: {} -> {}, 客观下线到切换耗时: {}ms", oldMaster, newMaster, lastPromotionMillis);
+            onSwitch.accept(newMaster);
+        } else if (parts.length >= 2 && "master".equals(parts[0]) && masterName.equals(parts[1])) {
+            if ("+odown".equals(channel)) {
+                if (odownNanos.compareAndSet(0, System.nanoTime())) {
+                    logger.warn("Sentinel判定主节点客观下线: {}", message);
+                }
+            } else if (odownNanos.getAndSet(0) != 0) {
+                logger.info("主节点恢复，未发生切换: {}", message);
+            }
+        }
+    }
+
+    /**
+     * 是否处于故障转移期（主节点客观下线且尚未切换），用于快速失败
+     */
+    boolean isFailoverInProgress() {
+        long odown = odownNanos.get();
+        return failFastMaxMillis > 0 && odown != 0
+            && System.nanoTime() - odown < TimeUnit.MILLISECONDS.toNanos(failFastMaxMillis);
+    }
+
+    /**
+     * 记录一次成功的去重调用，主节点切换后的第一次成功调用结束故障转移计时
+     */
+    void recordSuccess() {
+        long switched = switchNanos.get();
+        if (switched != 0 && switchNanos.compareAndSet(switched, 0)) {
+            lastFailoverMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - switched);
+            logger.warn("故障转移完成: 主节点切换到首次成功去重调用耗时 {}ms", lastFailoverMillis);
+        }
+    }
+
+    HostAndPort getCurrentMaster() {
+        return currentMaster.get();
+    }
+
+    /**
+     * 最近一次主节点切换到首次成功去重调用的耗时（毫秒），未发生过切换时为-1
+     */
+    long getLastFailoverMillis() {
+        return lastFailoverMillis;
+    }
+
+    /**
+     * 最近一次主节点客观下线到切换完成的耗时（毫秒），未观察到客观下线时为-1
+     */
+    long getLastPromotionMillis() {
+        return lastPromotionMillis;
+    }
+
+    long getFailoverCount() {
+        return failoverCount.get();
+    }
+
+    void close() {
+        running = false;
+        synchronized (subscriptions) {
+            for (JedisPubSub subscription : subscriptions) {
+                if (subscription.isSubscribed()) {
+                    subscription.unsubscribe();
+                }
+            }
+        }
+        for (Thread listener : listeners) {
+            listener.interrupt();
+        }
+        logger.info("Sentinel故障转移监听已关闭, 切换次数: {}, 最近一次耗时: {}ms", failoverCount.get(), lastFailoverMillis);
+    }
+}
@@ -0,0 +1,218 @@
+package com.example.kafka.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.TreeMap;
+
+/**
+ * 客户端一致性哈希分片的去重存储
+ * UUID按一致性哈希（每个分片若干虚拟节点）分布到N个Redis节点，每个分片是一个独立的 {@link RedisService}
+ * （独立连接池、pipeline与近端缓存），单个Redis节点的CPU和内存不再是去重吞吐和窗口长度的上限。
+ *
+ * 虚拟节点按 "host:port#序号" 哈希，与分片在列表中的顺序无关；新增一个分片只会迁移约 1/(N+1) 的UUID。
+ * 被迁移的UUID在新分片上没有历史记录，扩容后的一个去重窗口内这部分UUID的去重会失效，应在低峰期扩容。
+ *
+ * redis.sentinel.* 与 redis.replica.* 描述的是单个主节点：启用Sentinel时每个分片都会解析到同一个主节点，
+ * 启用副本读时每个分片的存在性检查都会读同一组只复制一个主节点的副本，因此分片模式下拒绝这两项配置。
+ */
+public class ShardedRedisDedupStore implements DedupStore {
+    private static final Logger logger = LoggerFactory.getLogger(ShardedRedisDedupStore.class);
+
+    private final Map<String, RedisService> shards = new LinkedHashMap<>();
+    private final TreeMap<Long, String> ring = new TreeMap<>();
+
+    /**
+     * @param props        配置（连接池、编码、存储模式等对每个分片生效）
+     * @param nodes        分片节点列表，格式 host:port
+     * @param virtualNodes 每个分片的虚拟节点数
+     */
+    public ShardedRedisDedupStore(Properties props, List<String> nodes, int virtualNodes) {
+        if (nodes.isEmpty()) {
+            throw new IllegalArgumentException("分片节点列表为空");
+        }
+        if (Boolean.parseBoolean(props.getProperty("redis.sentinel.enabled", "false"))) {
+            throw new IllegalArgumentException("sharded模式不支持 redis.sentinel.enabled=true：所有分片会解析到同一个Sentinel主节点");
+        }
+        if (Boolean.parseBoolean(props.getProperty("redis.replica.enabled", "false"))) {
+            throw new IllegalArgumentException("sharded模式不支持 redis.replica.enabled=true：redis.replica.nodes 只复制一个主节点，"
+                + "其他分片的存在性检查会读到错误结果");
+        }
+        for (String node : nodes) {
+            String name = node.trim();
+            int colon = name.lastIndexOf(':');
+            String host = colon > 0 ? name.substring(0, colon) : name;
+            int port = colon > 0 ? Integer.parseInt(name.substring(colon + 1)) : 6379;
+            shards.put(name, new RedisService(props, host, port));
+        }
+        this.ring.putAll(buildRing(shards.keySet(), virtualNodes));
+        logger.info("Redis分片去重存储初始化成功: shards={}, virtualNodes={}", shards.keySet(), virtualNodes);
+    }
+
+    /**
+     * 按 redis.shards（逗号分隔的 host:port 列表）和 redis.shards.virtualNodes 创建
+     */
+    public static ShardedRedisDedupStore fromProperties(Properties props) {
+        List<String> nodes = new ArrayList<>();
+        for (String node : props.getProperty("redis.shards", "").split(",")) {
+            if (!node.trim().isEmpty()) {
+                nodes.add(node.trim());
+            }
+        }
+        int virtualNodes = Integer.parseInt(props.getProperty("redis.shards.virtualNodes", "160"));
+        return new ShardedRedisDedupStore(props, nodes, virtualNodes);
+    }
+
+    /**
+     * 构建哈希环：虚拟节点位置到分片名称
+     */
+    static TreeMap<Long, String> buildRing(Collection<String> shardNames, int virtualNodes) {
+        TreeMap<Long, String> result = new TreeMap<>();
+        for (String name : shardNames) {
+            for (int i = 0; i < Math.max(1, virtualNodes); i++) {
+                byte[] label = (name + "#" + i).getBytes(StandardCharsets.UTF_8);
+                result.put(UuidHashing.murmur3x64_128(label)[0], name);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * 在哈希环上查找UUID所属分片
+     */
+    static String locate(TreeMap<Long, String> ring, String uuid) {
+        long[] bits = UuidHashing.toBits(uuid);
+        Map.Entry<Long, String> entry = ring.ceilingEntry(UuidHashing.mix64(bits[0] ^ bits[1]));
+        return entry != null ? entry.getValue() : ring.firstEntry().getValue();
+    }
+
+    /**
+     * UUID所属分片名称（host:port）
+     */
+    public String shardOf(String uuid) {
+        return locate(ring, uuid);
+    }
+
+    /**
+     * 各分片（按配置顺序）
+     */
+    public Map<String, RedisService> getShards() {
+        return Collections.unmodifiableMap(shards);
+    }
+
+    private RedisService route(String uuid) {
+        return shards.get(locate(ring, uuid));
+    }
+
+    @Override
+    public boolean isUuidExists(String uuid) {
+        return route(uuid).isUuidExists(uuid);
+    }
+
+    @Override
+    public boolean saveUuid(String uuid) {
+        return route(uuid).saveUuid(uuid);
+    }
+
+    @Override
+    public boolean reserveUuid(String uuid) {
+        return route(uuid).reserveUuid(uuid);
+    }
+
+    @Override
+    public boolean releaseUuid(String uuid) {
+        return route(uuid).releaseUuid(uuid);
+    }
+
+    @Override
+    public boolean deleteUuid(String uuid) {
+        return route(uuid).deleteUuid(uuid);
+    }
+
+    /**
+     * 按分片分组，每个分片一个pipeline，结果按入参顺序合并
+     */
+    @Override
+    public Map<String, Boolean> existsBatch(Collection<String> uuids) {
+        Map<String, Boolean> result = new LinkedHashMap<>();
+        if (uuids == null || uuids.isEmpty()) {
+            return result;
+        }
+        for (String uuid : uuids) {
+            result.put(uuid, Boolean.FALSE);
+        }
+
+        Map<String, List<String>> groups = new LinkedHashMap<>();
+        for (String uuid : uuids) {
+            groups.computeIfAbsent(locate(ring, uuid), k -> new ArrayList<>()).add(uuid);
+        }
+        for (Map.Entry<String, List<String>> group : groups.entrySet()) {
+            result.putAll(shards.get(group.getKey()).existsBatch(group.getValue()));
+        }
+        return result;
+    }
+
+    /**
+     * 按分片分组，每个分片一次批量预占，结果按入参顺序合并
+     */
+    @Override
+    public Map<String, Boolean> reserveBatch(Collection<String> uuids) {
+        Map<String, Boolean> result = new LinkedHashMap<>();
+        if (uuids == null || uuids.isEmpty()) {
+            return result;
+        }
+        for (String uuid : uuids) {
+            result.put(uuid, Boolean.FALSE);
+        }
+
+        Map<String, List<String>> groups = new LinkedHashMap<>();
+        for (String uuid : result.keySet()) {
+            groups.computeIfAbsent(locate(ring, uuid), k -> new ArrayList<>()).add(uuid);
+        }
+        for (Map.Entry<String, List<String>> group : groups.entrySet()) {
+            result.putAll(shards.get(group.getKey()).reserveBatch(group.getValue()));
+        }
+        return result;
+    }
+
+    /**
+     * 按分片分组，每个分片一个pipeline
+     */
+    @Override
+    public int saveBatch(Map<String, Long> uuidValues) {
+        if (uuidValues == null || uuidValues.isEmpty()) {
+            return 0;
+        }
+
+        Map<String, Map<String, Long>> groups = new LinkedHashMap<>();
+        for (Map.Entry<String, Long> entry : uuidValues.entrySet()) {
+            groups.computeIfAbsent(locate(ring, entry.getKey()), k -> new LinkedHashMap<>())
+                .put(entry.getKey(), entry.getValue());
+        }
+        int saved = 0;
+        for (Map.Entry<String, Map<String, Long>> group : groups.entrySet()) {
+            saved += shards.get(group.getKey()).saveBatch(group.getValue());
+        }
+        return saved;
+    }
+
+    @Override
+    public void close() {
+        for (RedisService shard : shards.values()) {
+            try {
+                shard.close();
+            } catch (Exception e) {
+                logger.warn("关闭Redis分片失败", e);
+            }
+        }
+        logger.info("Redis分片去重存储已关闭");
+    }
+}
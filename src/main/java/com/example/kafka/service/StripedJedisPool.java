@@ -0,0 +1,232 @@
+package com.example.kafka.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import redis.clients.jedis.Jedis;
+import redis.clients.jedis.JedisPoolAbstract;
+import redis.clients.jedis.JedisPoolConfig;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 分条带的Jedis连接池
+ * 单个commons-pool连接池的空闲队列（LinkedBlockingDeque）由一把锁保护，几十个生产者线程同时借还连接时成为竞争点。
+ * 这里把 maxTotal / maxIdle / minIdle 平均分给多个独立的 JedisPool，按线程ID选择条带，每个条带有自己的锁和空闲队列；
+ * 本条带连接已全部借出时，从有空闲连接的相邻条带借用（steal），避免一个条带排队而其他条带空闲。
+ *
+ * 连接借出时已绑定到所属条带，Jedis.close() 直接归还给该条带。
+ * 每个条带单独记录借用等待时间直方图，关闭时输出。
+ */
+public class StripedJedisPool extends JedisPoolAbstract implements ResizablePool {
+    private static final Logger logger = LoggerFactory.getLogger(StripedJedisPool.class);
+
+    private final TunableJedisPool[] stripes;
+    private final LatencyHistogram[] borrowWait;
+    private final AtomicLong[] stolenCounts;
+    private volatile boolean closed;
+
+    /**
+     * @param poolConfig 整体连接池配置，按条带数平均分配
+     * @param stripes    条带数
+     */
+    public StripedJedisPool(JedisPoolConfig poolConfig, String host, int port, int timeout, String password,
+                            int database, int stripes) {
+        int count = Math.max(1, Math.min(stripes, poolConfig.getMaxTotal()));
+        JedisPoolConfig stripeConfig = (JedisPoolConfig) poolConfig.clone();
+        stripeConfig.setMaxTotal(divide(poolConfig.getMaxTotal(), count));
+        stripeConfig.setMaxIdle(divide(poolConfig.getMaxIdle(), count));
+        stripeConfig.setMinIdle(divide(poolConfig.getMinIdle(), count));
+
+        this.stripes = new TunableJedisPool[count];
+        this.borrowWait = new LatencyHistogram[count];
+        this.stolenCounts = new AtomicLong[count];
+        for (int i = 0; i < count; i++) {
+            this.stripes[i] = new TunableJedisPool(stripeConfig, host, port, timeout, password, database);
+            this.borrowWait[i] = new LatencyHistogram();
+            this.stolenCounts[i] = new AtomicLong();
+        }
+        logger.info("Redis分条带连接池: stripes={}, 每条带 maxTotal={}, maxIdle={}, minIdle={}",
+            count, stripeConfig.getMaxTotal(), stripeConfig.getMaxIdle(), stripeConfig.getMinIdle());
+    }
+
+    private static int divide(int value, int count) {
+        return value <= 0 ? value : Math.max(1, (value + count - 1) / count);
+    }
+
+    @Override
+    public Jedis getResource() {
+        int home = (int) (Thread.currentThread().getId() % stripes.length);
+        int chosen = home;
+        TunableJedisPool pool = stripes[home];
+        if (pool.getNumIdle() == 0 && pool.getNumActive() >= pool.getMaxTotal()) {
+            for (int i = 1; i < stripes.length; i++) {
+                int neighbour = (home + i) % stripes.length;
+                if (stripes[neighbour].getNumIdle() > 0) {
+                    chosen = neighbour;
+                    pool = stripes[neighbour];
+                    stolenCounts[home].incrementAndGet();
+                    break;
+                }
+            }
+        }
+
+        long start = System.nanoTime();
+        try {
+            return pool.getResource();
+        } finally {
+            borrowWait[chosen].record(System.nanoTime() - start);
+        }
+    }
+
+    public int getStripeCount() {
+        return stripes.length;
+    }
+
+    /**
+     * 指定条带的借用等待时间直方图
+     */
+    public LatencyHistogram getBorrowWaitHistogram(int stripe) {
+        return borrowWait[stripe];
+    }
+
+    /**
+     * 指定条带的线程从相邻条带借用连接的次数
+     */
+    public long getStolenCount(int stripe) {
+        return stolenCounts[stripe].get();
+    }
+
+    @Override
+    public int getMaxTotal() {
+        int sum = 0;
+        for (TunableJedisPool pool : stripes) {
+            sum += pool.getMaxTotal();
+        }
+        return sum;
+    }
+
+    @Override
+    public int getMinIdle() {
+        int sum = 0;
+        for (TunableJedisPool pool : stripes) {
+            sum += pool.getMinIdle();
+        }
+        return sum;
+    }
+
+    /**
+     * 按条带平均分配新的容量
+     */
+    @Override
+    public void resize(int maxTotal, int minIdle) {
+        for (TunableJedisPool pool : stripes) {
+            pool.resize(divide(maxTotal, stripes.length), minIdle == 0 ? 0 : divide(minIdle, stripes.length));
+        }
+    }
+
+    @Override
+    public long getCreatedCount() {
+        long sum = 0;
+        for (TunableJedisPool pool : stripes) {
+            sum += pool.getCreatedCount();
+        }
+        return sum;
+    }
+
+    @Override
+    public long getDestroyedCount() {
+        long sum = 0;
+        for (TunableJedisPool pool : stripes) {
+            sum += pool.getDestroyedCount();
+        }
+        return sum;
+    }
+
+    @Override
+    public int getNumActive() {
+        int sum = 0;
+        for (TunableJedisPool pool : stripes) {
+            sum += pool.getNumActive();
+        }
+        return sum;
+    }
+
+    @Override
+    public int getNumIdle() {
+        int sum = 0;
+        for (TunableJedisPool pool : stripes) {
+            sum += pool.getNumIdle();
+        }
+        return sum;
+    }
+
+    @Override
+    public int getNumWaiters() {
+        int sum = 0;
+        for (TunableJedisPool pool : stripes) {
+            sum += pool.getNumWaiters();
+        }
+        return sum;
+    }
+
+    @Override
+    public long getMeanBorrowWaitTimeMillis() {
+        long sum = 0;
+        for (TunableJedisPool pool : stripes) {
+            sum += pool.getMeanBorrowWaitTimeMillis();
+        }
+        return sum / stripes.length;
+    }
+
+    @Override
+    public long getMaxBorrowWaitTimeMillis() {
+        long max = 0;
+        for (TunableJedisPool pool : stripes) {
+            max = Math.max(max, pool.getMaxBorrowWaitTimeMillis());
+        }
+        return max;
+    }
+
+    /**
+     * 按条带平均预建连接
+     */
+    @Override
+    public void addObjects(int count) {
+        for (int i = 0; i < stripes.length; i++) {
+            int share = count / stripes.length + (i < count % stripes.length ? 1 : 0);
+            if (share > 0) {
+                stripes[i].addObjects(share);
+            }
+        }
+    }
+
+    @Override
+    public boolean isClosed() {
+        return closed;
+    }
+
+    @Override
+    public void destroy() {
+        close();
+    }
+
+    @Override
+    public void close() {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        for (int i = 0; i < stripes.length; i++) {
+            logger.info("连接池条带 {} 借用等待: {}, 从相邻条带借用 {} 次", i, borrowWait[i], stolenCounts[i].get());
+            stripes[i].close();
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "StripedJedisPool{stripes=" + stripes.length +
+                ", active=" + getNumActive() +
+                ", idle=" + getNumIdle() +
+                ", waiters=" + getNumWaiters() + '}';
+    }
+}
@@ -0,0 +1,138 @@
+package com.example.kafka.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import redis.clients.jedis.Pipeline;
+import redis.clients.jedis.Response;
+import redis.clients.jedis.params.SetParams;
+import redis.clients.jedis.util.SafeEncoder;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Supplier;
+
+/**
+ * 时间窗口滚动集合布局
+ * 已确认的UUID（16字节）按保存时间写入所属时间窗口的Set，每个窗口一个键：message:uuid:w:{窗口序号}。
+ * 过期时间只设置在窗口键上（窗口结束 + 去重窗口），Redis需要跟踪的过期键数量从每UUID一个
+ * 降为每窗口一个，整窗过期一次完成；查询在一个pipeline内检查最近 K 个窗口（K = 去重窗口 / 窗口长度 + 1）。
+ *
+ * 单个窗口的Set可能很大，建议Redis开启 lazyfree-lazy-expire，避免整窗过期时阻塞主线程。
+ * 租约与哈希分桶布局相同，使用短TTL的独立键，确认后不主动删除。
+ */
+class TimeWindowDedupLayout implements DedupLayout {
+    private static final Logger logger = LoggerFactory.getLogger(TimeWindowDedupLayout.class);
+
+    private static final String WINDOW_PREFIX = DedupKeyCodec.STRING_PREFIX + "w:";
+    /** 每次查询检查的窗口数超过该值时告警：每个窗口一条SISMEMBER，单次检查的开销随窗口数线性增长 */
+    private static final long MAX_RECOMMENDED_WINDOWS = 16;
+
+    private final DedupKeyCodec keyCodec;
+    private final long expireSeconds;
+    private final long windowSeconds;
+
+    /**
+     * @param keyCodec      租约键编码
+     * @param expireSeconds 去重窗口（秒）
+     * @param windowSeconds 单个时间窗口长度（秒）
+     */
+    TimeWindowDedupLayout(DedupKeyCodec keyCodec, long expireSeconds, long windowSeconds) {
+        this.keyCodec = keyCodec;
+        this.expireSeconds = expireSeconds;
+        this.windowSeconds = Math.max(1, windowSeconds);
+        long windows = expireSeconds / this.windowSeconds + 1;
+        if (windows > MAX_RECOMMENDED_WINDOWS) {
+            logger.warn("window存储模式每次查询需检查 {} 个窗口（去重窗口 {}秒 / 窗口长度 {}秒 + 1），"
+                    + "建议增大 redis.storage.window.seconds，使窗口数不超过 {}",
+                windows, expireSeconds, this.windowSeconds, MAX_RECOMMENDED_WINDOWS);
+        }
+    }
+
+    @Override
+    public Supplier<Boolean> queueExists(Pipeline pipeline, String uuid) {
+        List<Response<Boolean>> checks = queueMembershipChecks(pipeline, uuid, System.currentTimeMillis());
+        Response<Boolean> lease = pipeline.exists(keyCodec.key(uuid));
+        return () -> Boolean.TRUE.equals(lease.get()) || anyTrue(checks);
+    }
+
+    @Override
+    public Supplier<Boolean> queueReserve(Pipeline pipeline, String uuid, long timestamp, int leaseSeconds) {
+        List<Response<Boolean>> checks = queueMembershipChecks(pipeline, uuid, timestamp);
+        Response<String> result = pipeline.set(keyCodec.key(uuid), keyCodec.value(timestamp),
+            SetParams.setParams().nx().ex(leaseSeconds));
+        return () -> "OK".equals(result.get()) && !anyTrue(checks);
+    }
+
+    @Override
+    public Supplier<Boolean> queueSave(Pipeline pipeline, String uuid, long timestamp) {
+        long window = windowOf(timestamp);
+        byte[] key = windowKey(window);
+        Response<Long> result = pipeline.sadd(key, UuidHashing.toBytes(UuidHashing.toBits(uuid)));
+        // 同一窗口内每次写入设置的是同一个过期时间点
+        pipeline.expireAt(key, (window + 1) * windowSeconds + expireSeconds);
+        return () -> result.get() != null;
+    }
+
+    @Override
+    public Supplier<Boolean> queueRelease(Pipeline pipeline, String uuid) {
+        Response<Long> deleted = pipeline.del(keyCodec.key(uuid));
+        return () -> KeyDedupLayout.isPositive(deleted.get());
+    }
+
+    @Override
+    public Supplier<Boolean> queueDelete(Pipeline pipeline, String uuid) {
+        byte[] member = UuidHashing.toBytes(UuidHashing.toBits(uuid));
+        List<Response<Long>> deletes = new ArrayList<>();
+        for (long window : windowsInRange(System.currentTimeMillis())) {
+            deletes.add(pipeline.srem(windowKey(window), member));
+        }
+        deletes.add(pipeline.del(keyCodec.key(uuid)));
+        return () -> {
+            for (Response<Long> deleted : deletes) {
+                if (KeyDedupLayout.isPositive(deleted.get())) {
+                    return true;
+                }
+            }
+            return false;
+        };
+    }
+
+    private List<Response<Boolean>> queueMembershipChecks(Pipeline pipeline, String uuid, long nowMillis) {
+        byte[] member = UuidHashing.toBytes(UuidHashing.toBits(uuid));
+        List<Response<Boolean>> checks = new ArrayList<>();
+        for (long window : windowsInRange(nowMillis)) {
+            checks.add(pipeline.sismember(windowKey(window), member));
+        }
+        return checks;
+    }
+
+    private long windowOf(long timestampMillis) {
+        return timestampMillis / 1000 / windowSeconds;
+    }
+
+    /**
+     * 去重窗口覆盖的全部时间窗口，从新到旧
+     */
+    private List<Long> windowsInRange(long nowMillis) {
+        long newest = windowOf(nowMillis);
+        long oldest = windowOf(nowMillis - expireSeconds * 1000);
+        List<Long> result = new ArrayList<>((int) (newest - oldest + 1));
+        for (long window = newest; window >= oldest; window--) {
+            result.add(window);
+        }
+        return result;
+    }
+
+    private static byte[] windowKey(long window) {
+        return SafeEncoder.encode(WINDOW_PREFIX + window);
+    }
+
+    private static boolean anyTrue(List<Response<Boolean>> checks) {
+        for (Response<Boolean> check : checks) {
+            if (Boolean.TRUE.equals(check.get())) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
@@ -0,0 +1,364 @@
+package com.example.kafka.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import redis.clients.jedis.Client;
+import redis.clients.jedis.Jedis;
+import redis.clients.jedis.Protocol;
+import redis.clients.jedis.util.SafeEncoder;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.WeakHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * 服务端辅助失效的近端缓存（Redis 6+ CLIENT TRACKING）
+ * 缓存存在性检查的结果（存在与不存在都缓存），重复查询同一UUID不再访问Redis。
+ * 读取所用的连接开启 CLIENT TRACKING 并把失效消息重定向（REDIRECT）到一条专用订阅连接：
+ * 任何客户端（包括其他生产者节点）修改、删除或过期了被读取过的键，服务端都会推送失效消息，本地条目随即移除。
+ *
+ * Jedis 3.x 只支持RESP2，失效消息以 __redis__:invalidate 频道消息送达，其内容是键数组而非字符串，
+ * JedisPubSub无法解析，因此订阅连接使用自己的读取循环。
+ *
+ * 并发读取的竞争：读取请求发出后、结果写入缓存前，该键可能已被修改且失效消息先于结果处理。
+ * 读取前先放入占位对象，失效消息会移除占位，结果返回时只有占位仍在才写入缓存，避免缓存过期的结果。
+ * 订阅连接断开期间失效消息会丢失，此时清空缓存并直接读Redis，重连后按新的客户端ID重新开启跟踪。
+ *
+ * 缓存由存在性检查（isUuidExists / existsBatch）填充；预占（reserveUuid / reserveBatch）只在缓存确认已存在时跳过Redis，
+ * 其结果不写入缓存，因此发送路径只有在同一UUID先被检查过时才能省去往返。
+ *
+ * 只支持 key 存储模式：失效消息中的键可以直接对应到UUID。
+ */
+class TrackingNearCache {
+    private static final Logger logger = LoggerFactory.getLogger(TrackingNearCache.class);
+
+    private static final String INVALIDATE_CHANNEL = "__redis__:invalidate";
+    private static final long RECONNECT_DELAY_MILLIS = 1000;
+    private static final int SEGMENT_COUNT = 16;
+    private static final byte[] STRING_PREFIX_BYTES = SafeEncoder.encode(DedupKeyCodec.STRING_PREFIX);
+
+    /**
+     * 订阅连接的一次有效注册（重定向目标客户端ID），订阅断开后作废，连接需按新注册重新开启跟踪
+     */
+    private static final class Registration {
+        private final long clientId;
+
+        private Registration(long clientId) {
+            this.clientId = clientId;
+        }
+    }
+
+    private final DedupKeyCodec keyCodec;
+    private final Supplier<Jedis> borrower;
+    private final Supplier<Jedis> subscriberFactory;
+    private final Segment[] segments;
+    /** 已在当前注册下开启跟踪的连接 */
+    private final Map<Client, Registration> trackedConnections = Collections.synchronizedMap(new WeakHashMap<>());
+    private final Thread listener;
+    private volatile boolean running = true;
+    private volatile Registration registration;
+    private volatile Jedis subscriber;
+
+    private final AtomicLong hitCount = new AtomicLong();
+    private final AtomicLong missCount = new AtomicLong();
+    private final AtomicLong invalidationCount = new AtomicLong();
+    private final AtomicLong racedCount = new AtomicLong();
+
+    /**
+     * @param keyCodec          去重键编码
+     * @param maxSize           最大缓存条数
+     * @param borrower          借用读取连接（来自主节点连接池）
+     * @param subscriberFactory 创建订阅连接（已完成认证）
+     */
+    TrackingNearCache(DedupKeyCodec keyCodec, int maxSize, Supplier<Jedis> borrower, Supplier<Jedis> subscriberFactory) {
+        this.keyCodec = keyCodec;
+        this.borrower = borrower;
+        this.subscriberFactory = subscriberFactory;
+        this.segments = new Segment[SEGMENT_COUNT];
+        int segmentSize = Math.max(1, maxSize / SEGMENT_COUNT);
+        for (int i = 0; i < SEGMENT_COUNT; i++) {
+            segments[i] = new Segment(segmentSize);
+        }
+        this.listener = new Thread(this::listen, "redis-tracking-invalidate");
+        listener.setDaemon(true);
+        listener.start();
+        logger.info("服务端辅助失效近端缓存已启用: maxSize={}", maxSize);
+    }
+
+    /**
+     * 查询缓存的存在性结论
+     *
+     * @return 缓存的结论；未命中（或正在读取中）时返回null
+     */
+    Boolean get(String uuid) {
+        String key = cacheKey(keyCodec.key(uuid));
+        Segment segment = segmentFor(key);
+        Object value;
+        synchronized (segment) {
+            value = segment.get(key);
+        }
+        if (value instanceof Boolean) {
+            hitCount.incrementAndGet();
+            return (Boolean) value;
+        }
+        missCount.incrementAndGet();
+        return null;
+    }
+
+    /**
+     * 在开启跟踪的连接上读取存在性，并在读取期间没有收到失效消息时写入缓存
+     *
+     * @param reader 在连接上执行存在性检查
+     */
+    boolean load(String uuid, Function<Jedis, Boolean> reader) {
+        return loadAll(Collections.singletonList(uuid),
+            jedis -> Collections.singletonMap(uuid, reader.apply(jedis))).get(uuid);
+    }
+
+    /**
+     * 批量版的 {@link #load(String, Function)}：整批在一个开启跟踪的连接上读取，
+     * 读取期间没有收到失效消息的UUID写入缓存
+     *
+     * @param reader 在连接上执行整批存在性检查，返回UUID到是否存在的映射
+     */
+    Map<String, Boolean> loadAll(Collection<String> uuids, Function<Jedis, Map<String, Boolean>> reader) {
+        Registration current = registration;
+        if (current == null) {
+            // 订阅连接不可用，失效消息无法送达，不缓存
+            try (Jedis jedis = borrower.get()) {
+                return reader.apply(jedis);
+            }
+        }
+
+        Map<String, Object> placeholders = new LinkedHashMap<>();
+        for (String uuid : uuids) {
+            String key = cacheKey(keyCodec.key(uuid));
+            Object placeholder = new Object();
+            Segment segment = segmentFor(key);
+            synchronized (segment) {
+                segment.put(key, placeholder);
+            }
+            placeholders.put(uuid, placeholder);
+        }
+
+        Map<String, Boolean> found;
+        try (Jedis jedis = borrower.get()) {
+            enableTracking(jedis, current);
+            found = reader.apply(jedis);
+        } catch (RuntimeException e) {
+            for (Map.Entry<String, Object> entry : placeholders.entrySet()) {
+                String key = cacheKey(keyCodec.key(entry.getKey()));
+                Segment segment = segmentFor(key);
+                synchronized (segment) {
+                    segment.remove(key, entry.getValue());
+                }
+            }
+            throw e;
+        }
+
+        for (Map.Entry<String, Object> entry : placeholders.entrySet()) {
+            String key = cacheKey(keyCodec.key(entry.getKey()));
+            Boolean exists = found.get(entry.getKey());
+            Segment segment = segmentFor(key);
+            synchronized (segment) {
+                if (exists != null && segment.get(key) == entry.getValue() && registration == current) {
+                    segment.put(key, exists);
+                } else {
+                    segment.remove(key, entry.getValue());
+                    racedCount.incrementAndGet();
+                }
+            }
+        }
+        return found;
+    }
+
+    /**
+     * 本进程写入后立即移除本地条目，不等待服务端的失效消息
+     */
+    void invalidate(String uuid) {
+        remove(cacheKey(keyCodec.key(uuid)));
+    }
+
+    /**
+     * 连接首次用于读取（或订阅连接重建后）时开启跟踪，重定向到当前订阅连接
+     */
+    private void enableTracking(Jedis jedis, Registration current) {
+        Client client = jedis.getClient();
+        Registration tracked = trackedConnections.get(client);
+        if (tracked == current) {
+            return;
+        }
+        if (tracked != null) {
+            jedis.sendCommand(Protocol.Command.CLIENT, SafeEncoder.encode("TRACKING"), SafeEncoder.encode("off"));
+        }
+        jedis.sendCommand(Protocol.Command.CLIENT, SafeEncoder.encode("TRACKING"), SafeEncoder.encode("on"),
+            SafeEncoder.encode("REDIRECT"), SafeEncoder.encode(String.valueOf(current.clientId)));
+        trackedConnections.put(client, current);
+    }
+
+    private void listen() {
+        while (running) {
+            Jedis jedis = null;
+            try {
+                jedis = subscriberFactory.get();
+                long clientId = (Long) jedis.sendCommand(Protocol.Command.CLIENT, SafeEncoder.encode("ID"));
+                Client client = jedis.getClient();
+                client.setTimeoutInfinite();
+                client.subscribe(INVALIDATE_CHANNEL);
+                // 订阅确认（SUBSCRIBE只写入输出缓冲区，这里先刷出再读取）
+                client.getObjectMultiBulkReply();
+                subscriber = jedis;
+                registration = new Registration(clientId);
+                logger.info("失效消息订阅已建立: clientId={}", clientId);
+
+                while (running) {
+                    List<Object> reply = client.getUnflushedObjectMultiBulkReply();
+                    if (reply.size() >= 3 && "message".equals(SafeEncoder.encode((byte[]) reply.get(0)))) {
+                        onInvalidate(reply.get(2));
+                    }
+                }
+            } catch (Exception e) {
+                if (running) {
+                    logger.warn("失效消息订阅中断，清空近端缓存，{}ms后重连: {}", RECONNECT_DELAY_MILLIS, e.getMessage());
+                }
+            } finally {
+                registration = null;
+                subscriber = null;
+                clear();
+                if (jedis != null) {
+                    try {
+                        jedis.close();
+                    } catch (Exception ignored) {
+                        // 连接已断开
+                    }
+                }
+            }
+            if (running) {
+                FaultInjectingDedupStore.sleep(RECONNECT_DELAY_MILLIS);
+            }
+        }
+    }
+
+    /**
+     * 失效消息内容为键数组；FLUSHALL / FLUSHDB 时为空，需清空全部缓存
+     */
+    private void onInvalidate(Object payload) {
+        if (payload == null) {
+            clear();
+            return;
+        }
+        if (payload instanceof byte[]) {
+            remove(cacheKey((byte[]) payload));
+            invalidationCount.incrementAndGet();
+            return;
+        }
+        for (Object key : (List<?>) payload) {
+            remove(cacheKey((byte[]) key));
+            invalidationCount.incrementAndGet();
+        }
+    }
+
+    /**
+     * 缓存键：写入键的原始字节；BINARY编码兼容读取时，旧字符串键的失效映射到对应的二进制键
+     */
+    private String cacheKey(byte[] redisKey) {
+        if (keyCodec.getEncoding() == DedupKeyCodec.Encoding.BINARY && startsWith(redisKey, STRING_PREFIX_BYTES)) {
+            String uuid = new String(redisKey, STRING_PREFIX_BYTES.length, redisKey.length - STRING_PREFIX_BYTES.length,
+                StandardCharsets.UTF_8);
+            redisKey = DedupKeyCodec.binaryKey(uuid);
+        }
+        return new String(redisKey, StandardCharsets.ISO_8859_1);
+    }
+
+    private static boolean startsWith(byte[] value, byte[] prefix) {
+        if (value.length < prefix.length) {
+            return false;
+        }
+        for (int i = 0; i < prefix.length; i++) {
+            if (value[i] != prefix[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private void remove(String key) {
+        Segment segment = segmentFor(key);
+        synchronized (segment) {
+            segment.remove(key);
+        }
+    }
+
+    private void clear() {
+        for (Segment segment : segments) {
+            synchronized (segment) {
+                segment.clear();
+            }
+        }
+    }
+
+    private Segment segmentFor(String key) {
+        int h = key.hashCode();
+        h ^= (h >>> 16);
+        return segments[h & (SEGMENT_COUNT - 1)];
+    }
+
+    int size() {
+        int size = 0;
+        for (Segment segment : segments) {
+            synchronized (segment) {
+                size += segment.size();
+            }
+        }
+        return size;
+    }
+
+    @Override
+    public String toString() {
+        return "TrackingNearCache{" +
+                "size=" + size() +
+                ", hits=" + hitCount.get() +
+                ", misses=" + missCount.get() +
+                ", invalidations=" + invalidationCount.get() +
+                ", raced=" + racedCount.get() +
+                ", subscribed=" + (registration != null) +
+                '}';
+    }
+
+    void close() {
+        running = false;
+        Jedis current = subscriber;
+        if (current != null) {
+            // 阻塞读取随连接关闭返回
+            current.getClient().disconnect();
+        }
+        listener.interrupt();
+        logger.info("服务端辅助失效近端缓存已关闭: {}", this);
+    }
+
+    /**
+     * 按访问顺序的LRU分段，值为存在性结论（Boolean）或读取中的占位对象
+     */
+    private static final class Segment extends LinkedHashMap<String, Object> {
+        private static final long serialVersionUID = 1L;
+
+        private final int maxSize;
+
+        private Segment(int maxSize) {
+            super(16, 0.75f, true);
+            this.maxSize = maxSize;
+        }
+
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, Object> eldest) {
+            return size() > maxSize;
+        }
+    }
+}
@@ -0,0 +1,50 @@
+package com.example.kafka.service;
+
+import redis.clients.jedis.JedisPool;
+import redis.clients.jedis.JedisPoolConfig;
+
+/**
+ * 可在运行期调整 maxTotal / minIdle 的JedisPool
+ * JedisPool 不暴露底层commons-pool对象，这里通过子类访问 internalPool 修改容量，借还行为与JedisPool完全相同。
+ */
+public class TunableJedisPool extends JedisPool implements ResizablePool {
+
+    public TunableJedisPool(JedisPoolConfig poolConfig, String host, int port, int timeout, String password,
+                            int database) {
+        super(poolConfig, host, port, timeout, password, database);
+    }
+
+    @Override
+    public int getMaxTotal() {
+        return internalPool.getMaxTotal();
+    }
+
+    @Override
+    public int getMinIdle() {
+        return internalPool.getMinIdle();
+    }
+
+    @Override
+    public long getCreatedCount() {
+        return internalPool.getCreatedCount();
+    }
+
+    @Override
+    public long getDestroyedCount() {
+        return internalPool.getDestroyedCount();
+    }
+
+    @Override
+    public void resize(int maxTotal, int minIdle) {
+        // 先放大上限再调整下限，保证任一时刻 minIdle <= maxIdle
+        if (maxTotal >= internalPool.getMaxTotal()) {
+            internalPool.setMaxTotal(maxTotal);
+            internalPool.setMaxIdle(maxTotal);
+            internalPool.setMinIdle(minIdle);
+        } else {
+            internalPool.setMinIdle(minIdle);
+            internalPool.setMaxIdle(maxTotal);
+            internalPool.setMaxTotal(maxTotal);
+        }
+    }
+}
@@ -0,0 +1,169 @@
+package com.example.kafka.service;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * UUID哈希工具
+ * 标准UUID字符串直接解析为128位；非标准格式的ID使用MurmurHash3 x64_128映射为128位
+ */
+final class UuidHashing {
+
+    private UuidHashing() {
+    }
+
+    /**
+     * 将UUID字符串转换为128位（[0]=高64位，[1]=低64位）
+     */
+    static long[] toBits(String uuid) {
+        if (isCanonicalUuid(uuid)) {
+            long msb = parseHex(uuid, 0, 8);
+            msb = (msb << 16) | parseHex(uuid, 9, 13);
+            msb = (msb << 16) | parseHex(uuid, 14, 18);
+            long lsb = parseHex(uuid, 19, 23);
+            lsb = (lsb << 48) | parseHex(uuid, 24, 36);
+            return new long[]{msb, lsb};
+        }
+        return murmur3x64_128(uuid.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * 是否为 8-4-4-4-12 格式的UUID字符串
+     */
+    static boolean isCanonicalUuid(String s) {
+        if (s.length() != 36) {
+            return false;
+        }
+        for (int i = 0; i < 36; i++) {
+            char c = s.charAt(i);
+            if (i == 8 || i == 13 || i == 18 || i == 23) {
+                if (c != '-') {
+                    return false;
+                }
+            } else if (Character.digit(c, 16) < 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * 128位转换为16字节大端序数组
+     */
+    static byte[] toBytes(long[] bits) {
+        byte[] bytes = new byte[16];
+        for (int i = 0; i < 8; i++) {
+            bytes[i] = (byte) (bits[0] >>> (56 - 8 * i));
+            bytes[8 + i] = (byte) (bits[1] >>> (56 - 8 * i));
+        }
+        return bytes;
+    }
+
+    private static long parseHex(String s, int from, int to) {
+        long value = 0;
+        for (int i = from; i < to; i++) {
+            value = (value << 4) | Character.digit(s.charAt(i), 16);
+        }
+        return value;
+    }
+
+    /**
+     * 64位混淆函数（MurmurHash3 fmix64）
+     */
+    static long mix64(long k) {
+        k ^= k >>> 33;
+        k *= 0xff51afd7ed558ccdL;
+        k ^= k >>> 33;
+        k *= 0xc4ceb9fe1a85ec53L;
+        k ^= k >>> 33;
+        return k;
+    }
+
+    /**
+     * MurmurHash3 x64_128，seed=0
+     * 尾部处理的 switch 按算法有意逐级贯穿
+     */
+    @SuppressWarnings("fallthrough")
+    static long[] murmur3x64_128(byte[] data) {
+        final long c1 = 0x87c37b91114253d5L;
+        final long c2 = 0x4cf5ad432745937fL;
+        int length = data.length;
+        int blocks = length / 16;
+        long h1 = 0;
+        long h2 = 0;
+
+        for (int i = 0; i < blocks; i++) {
+            long k1 = getLittleEndianLong(data, i * 16);
+            long k2 = getLittleEndianLong(data, i * 16 + 8);
+
+            k1 *= c1;
+            k1 = Long.rotateLeft(k1, 31);
+            k1 *= c2;
+            h1 ^= k1;
+            h1 = Long.rotateLeft(h1, 27);
+            h1 += h2;
+            h1 = h1 * 5 + 0x52dce729;
+
+            k2 *= c2;
+            k2 = Long.rotateLeft(k2, 33);
+            k2 *= c1;
+            h2 ^= k2;
+            h2 = Long.rotateLeft(h2, 31);
+            h2 += h1;
+            h2 = h2 * 5 + 0x38495ab5;
+        }
+
+        long k1 = 0;
+        long k2 = 0;
+        int tail = blocks * 16;
+        switch (length & 15) {
+            case 15: k2 ^= ((long) data[tail + 14] & 0xff) << 48;
+            case 14: k2 ^= ((long) data[tail + 13] & 0xff) << 40;
+            case 13: k2 ^= ((long) data[tail + 12] & 0xff) << 32;
+            case 12: k2 ^= ((long) data[tail + 11] & 0xff) << 24;
+            case 11: k2 ^= ((long) data[tail + 10] & 0xff) << 16;
+            case 10: k2 ^= ((long) data[tail + 9] & 0xff) << 8;
+            case 9:
+                k2 ^= ((long) data[tail + 8] & 0xff);
+                k2 *= c2;
+                k2 = Long.rotateLeft(k2, 33);
+                k2 *= c1;
+                h2 ^= k2;
+            case 8: k1 ^= ((long) data[tail + 7] & 0xff) << 56;
+            case 7: k1 ^= ((long) data[tail + 6] & 0xff) << 48;
+            case 6: k1 ^= ((long) data[tail + 5] & 0xff) << 40;
+            case 5: k1 ^= ((long) data[tail + 4] & 0xff) << 32;
+            case 4: k1 ^= ((long) data[tail + 3] & 0xff) << 24;
+            case 3: k1 ^= ((long) data[tail + 2] & 0xff) << 16;
+            case 2: k1 ^= ((long) data[tail + 1] & 0xff) << 8;
+            case 1:
+                k1 ^= ((long) data[tail] & 0xff);
+                k1 *= c1;
+                k1 = Long.rotateLeft(k1, 31);
+                k1 *= c2;
+                h1 ^= k1;
+            default:
+                break;
+        }
+
+        h1 ^= length;
+        h2 ^= length;
+        h1 += h2;
+        h2 += h1;
+        h1 = mix64(h1);
+        h2 = mix64(h2);
+        h1 += h2;
+        h2 += h1;
+        return new long[]{h1, h2};
+    }
+
+    private static long getLittleEndianLong(byte[] data, int offset) {
+        return ((long) data[offset] & 0xff)
+                | (((long) data[offset + 1] & 0xff) << 8)
+                | (((long) data[offset + 2] & 0xff) << 16)
+                | (((long) data[offset + 3] & 0xff) << 24)
+                | (((long) data[offset + 4] & 0xff) << 32)
+                | (((long) data[offset + 5] & 0xff) << 40)
+                | (((long) data[offset + 6] & 0xff) << 48)
+                | (((long) data[offset + 7] & 0xff) << 56);
+    }
+}
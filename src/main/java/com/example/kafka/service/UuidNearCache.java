@@ -0,0 +1,205 @@
+package com.example.kafka.service;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 进程内UUID近端缓存（L1）
+ * 缓存本进程最近保存成功的UUID，命中时直接判定为重复消息，不访问Redis。
+ * 在Redis中查到的键不写入：它可能只是其他节点持有的短租约，发送失败释放后仍需允许重试；
+ * 保存成功时Redis中的过期时间从当前时刻起算，因此按容量LRU淘汰，按过期时间（与 redis.uuid.expire.seconds 对齐）失效。
+ * 只缓存"已存在"的结论：未命中仍需查询Redis，因此不会把新消息误判为已发送以外的状态。
+ */
+public class UuidNearCache implements LocalUuidIndex {
+    private static final int SEGMENT_COUNT = 16;
+
+    private final Segment[] segments;
+    private final long ttlMillis;
+
+    private final AtomicLong hitCount = new AtomicLong();
+    private final AtomicLong missCount = new AtomicLong();
+    private final AtomicLong evictionCount = new AtomicLong();
+    private final AtomicLong expiredCount = new AtomicLong();
+
+    /**
+     * @param maxSize    最大缓存条数
+     * @param ttlSeconds 条目存活时间（秒）
+     */
+    public UuidNearCache(int maxSize, long ttlSeconds) {
+        this.ttlMillis = TimeUnit.SECONDS.toMillis(ttlSeconds);
+        this.segments = new Segment[SEGMENT_COUNT];
+        int segmentSize = Math.max(1, maxSize / SEGMENT_COUNT);
+        for (int i = 0; i < SEGMENT_COUNT; i++) {
+            segments[i] = new Segment(segmentSize);
+        }
+    }
+
+    /**
+     * 查询UUID是否在缓存中（未过期）
+     *
+     * @param uuid 消息UUID
+     * @return true-命中，false-未命中
+     */
+    @Override
+    public boolean contains(String uuid) {
+        Segment segment = segmentFor(uuid);
+        long now = System.currentTimeMillis();
+        boolean hit;
+        synchronized (segment) {
+            Long expiresAt = segment.get(uuid);
+            if (expiresAt != null && expiresAt <= now) {
+                segment.remove(uuid);
+                expiredCount.incrementAndGet();
+                expiresAt = null;
+            }
+            hit = expiresAt != null;
+        }
+
+        if (hit) {
+            hitCount.incrementAndGet();
+        } else {
+            missCount.incrementAndGet();
+        }
+        return hit;
+    }
+
+    /**
+     * 记录UUID已存在，过期时间从当前时刻起算
+     *
+     * @param uuid 消息UUID
+     */
+    @Override
+    public void put(String uuid) {
+        Segment segment = segmentFor(uuid);
+        long expiresAt = System.currentTimeMillis() + ttlMillis;
+        synchronized (segment) {
+            segment.put(uuid, expiresAt);
+        }
+    }
+
+    /**
+     * 按128位键记录UUID，缓存键为其标准字符串形式
+     */
+    @Override
+    public void put(long msb, long lsb, long expiresAt) {
+        String uuid = new UUID(msb, lsb).toString();
+        Segment segment = segmentFor(uuid);
+        synchronized (segment) {
+            segment.put(uuid, expiresAt);
+        }
+    }
+
+    /**
+     * 移除UUID（租约释放或删除时调用）
+     *
+     * @param uuid 消息UUID
+     */
+    @Override
+    public void invalidate(String uuid) {
+        Segment segment = segmentFor(uuid);
+        synchronized (segment) {
+            segment.remove(uuid);
+        }
+    }
+
+    /**
+     * 遍历未过期的条目；非标准UUID格式的ID无法从128位还原，不参与快照
+     */
+    @Override
+    public void forEach(EntryVisitor visitor) {
+        long now = System.currentTimeMillis();
+        for (Segment segment : segments) {
+            List<long[]> entries = new ArrayList<>();
+            synchronized (segment) {
+                for (Map.Entry<String, Long> entry : segment.entrySet()) {
+                    if (entry.getValue() > now && UuidHashing.isCanonicalUuid(entry.getKey())) {
+                        long[] bits = UuidHashing.toBits(entry.getKey());
+                        entries.add(new long[]{bits[0], bits[1], entry.getValue()});
+                    }
+                }
+            }
+            for (long[] entry : entries) {
+                visitor.visit(entry[0], entry[1], entry[2]);
+            }
+        }
+    }
+
+    /**
+     * 当前缓存条数（可能包含尚未清理的过期条目）
+     */
+    @Override
+    public int size() {
+        int size = 0;
+        for (Segment segment : segments) {
+            synchronized (segment) {
+                size += segment.size();
+            }
+        }
+        return size;
+    }
+
+    @Override
+    public long getHitCount() {
+        return hitCount.get();
+    }
+
+    @Override
+    public long getMissCount() {
+        return missCount.get();
+    }
+
+    @Override
+    public long getEvictionCount() {
+        return evictionCount.get();
+    }
+
+    public long getExpiredCount() {
+        return expiredCount.get();
+    }
+
+    private Segment segmentFor(String uuid) {
+        int h = uuid.hashCode();
+        h ^= (h >>> 16);
+        return segments[h & (SEGMENT_COUNT - 1)];
+    }
+
+    @Override
+    public String toString() {
+        return "UuidNearCache{" +
+                "size=" + size() +
+                ", hits=" + getHitCount() +
+                ", misses=" + getMissCount() +
+                ", evictions=" + getEvictionCount() +
+                ", expired=" + getExpiredCount() +
+                ", hitRatio=" + String.format("%.3f", getHitRatio()) +
+                '}';
+    }
+
+    /**
+     * 按访问顺序排列的LRU分段，超出容量时淘汰最久未访问的条目
+     */
+    private final class Segment extends LinkedHashMap<String, Long> {
+        private static final long serialVersionUID = 1L;
+
+        private final int maxSize;
+
+        private Segment(int maxSize) {
+            super(16, 0.75f, true);
+            this.maxSize = maxSize;
+        }
+
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, Long> eldest) {
+            if (size() > maxSize) {
+                evictionCount.incrementAndGet();
+                return true;
+            }
+            return false;
+        }
+    }
+}
@@ -0,0 +1,191 @@
+package com.example.kafka.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.AbstractMap;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * UUID异步批量写入（write-behind）
+ * Kafka发送成功后的保存操作只进入有界队列，调用线程不再等待SETEX往返；
+ * 后台线程按 batchSize 或 flushMillis 凑批，通过 {@link DedupStore#saveBatch(Map)} 以pipeline写入Redis，
+ * 过期时间沿用存储的正式去重窗口。
+ *
+ * 持久性说明：入队到写入之间，UUID只受预占租约（redis.uuid.lease.seconds）保护，flushMillis 应远小于租约时长；
+ * 进程崩溃会丢失队列中尚未写入的UUID，{@link #getPendingCount()} 即这部分的数量。
+ * 队列已满时 {@link #enqueue(String)} 返回false，由调用方同步写入。
+ */
+public class WriteBehindUuidWriter {
+    private static final Logger logger = LoggerFactory.getLogger(WriteBehindUuidWriter.class);
+
+    private static final long RETRY_BACKOFF_MILLIS = 100;
+    private static final int CLOSE_RETRIES = 3;
+
+    private final DedupStore dedupStore;
+    private final BlockingQueue<Map.Entry<String, Long>> queue;
+    private final int batchSize;
+    private final long flushMillis;
+    private final Thread writer;
+    private volatile boolean running = true;
+
+    private final AtomicLong inFlightCount = new AtomicLong();
+    private final AtomicLong flushedCount = new AtomicLong();
+    private final AtomicLong failedBatchCount = new AtomicLong();
+    private final AtomicLong rejectedCount = new AtomicLong();
+    private final AtomicLong lostCount = new AtomicLong();
+
+    /**
+     * @param dedupStore  去重存储
+     * @param queueSize   队列容量
+     * @param batchSize   单批最多写入的UUID数
+     * @param flushMillis 凑批等待的最长时间（毫秒）
+     */
+    public WriteBehindUuidWriter(DedupStore dedupStore, int queueSize, int batchSize, long flushMillis) {
+        this.dedupStore = dedupStore;
+        this.queue = new ArrayBlockingQueue<>(queueSize);
+        this.batchSize = Math.max(1, batchSize);
+        this.flushMillis = Math.max(0, flushMillis);
+        this.writer = new Thread(this::runWriter, "uuid-write-behind");
+        writer.setDaemon(true);
+        writer.start();
+        logger.info("UUID异步写入已启用: queueSize={}, batchSize={}, flushMillis={}", queueSize, this.batchSize, this.flushMillis);
+    }
+
+    /**
+     * 将UUID加入写入队列
+     *
+     * @return true-已入队，false-队列已满或已关闭（调用方应同步写入）
+     */
+    public boolean enqueue(String uuid) {
+        if (running && queue.offer(new AbstractMap.SimpleImmutableEntry<>(uuid, System.currentTimeMillis()))) {
+            return true;
+        }
+        rejectedCount.incrementAndGet();
+        return false;
+    }
+
+    /**
+     * 已入队但尚未写入Redis的UUID数量（含正在写入的批次）
+     */
+    public long getPendingCount() {
+        return queue.size() + inFlightCount.get();
+    }
+
+    public long getFlushedCount() {
+        return flushedCount.get();
+    }
+
+    public long getFailedBatchCount() {
+        return failedBatchCount.get();
+    }
+
+    /**
+     * 队列已满、退回同步写入的次数
+     */
+    public long getRejectedCount() {
+        return rejectedCount.get();
+    }
+
+    /**
+     * 关闭时仍未能写入Redis的UUID数量
+     */
+    public long getLostCount() {
+        return lostCount.get();
+    }
+
+    private void runWriter() {
+        List<Map.Entry<String, Long>> drained = new ArrayList<>(batchSize);
+        while (running || !queue.isEmpty()) {
+            try {
+                Map.Entry<String, Long> first = queue.poll(100, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                drained.add(first);
+                long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(flushMillis);
+                while (drained.size() < batchSize) {
+                    queue.drainTo(drained, batchSize - drained.size());
+                    long remaining = deadline - System.nanoTime();
+                    if (drained.size() >= batchSize || remaining <= 0) {
+                        break;
+                    }
+                    Map.Entry<String, Long> next = queue.poll(remaining, TimeUnit.NANOSECONDS);
+                    if (next == null) {
+                        break;
+                    }
+                    drained.add(next);
+                }
+                flush(drained);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                lostCount.addAndGet(drained.size());
+                break;
+            } finally {
+                drained.clear();
+            }
+        }
+    }
+
+    /**
+     * 写入一批；失败时退避重试，运行期间直到成功为止（队列积压后新的保存退回同步写入），关闭时最多重试 {@value #CLOSE_RETRIES} 次
+     */
+    private void flush(List<Map.Entry<String, Long>> drained) throws InterruptedException {
+        Map<String, Long> batch = new LinkedHashMap<>();
+        for (Map.Entry<String, Long> entry : drained) {
+            batch.put(entry.getKey(), entry.getValue());
+        }
+        inFlightCount.set(batch.size());
+        try {
+            for (int attempt = 1; ; attempt++) {
+                try {
+                    dedupStore.saveBatch(batch);
+                    flushedCount.addAndGet(batch.size());
+                    return;
+                } catch (Exception e) {
+                    failedBatchCount.incrementAndGet();
+                    if (!running && attempt >= CLOSE_RETRIES) {
+                        lostCount.addAndGet(batch.size());
+                        logger.error("UUID异步写入失败，放弃 {} 个UUID: {}", batch.size(), e.getMessage());
+                        return;
+                    }
+                    logger.warn("UUID异步写入失败（第{}次），{}ms后重试: {}", attempt, RETRY_BACKOFF_MILLIS, e.getMessage());
+                    Thread.sleep(RETRY_BACKOFF_MILLIS);
+                }
+            }
+        } finally {
+            inFlightCount.set(0);
+        }
+    }
+
+    /**
+     * 停止接收新UUID，等待队列中已有UUID写入Redis
+     *
+     * @param timeoutMillis 最长等待时间（毫秒）
+     */
+    public void close(long timeoutMillis) {
+        running = false;
+        try {
+            writer.join(timeoutMillis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        if (writer.isAlive()) {
+            writer.interrupt();
+        }
+        long remaining = queue.size();
+        if (remaining > 0) {
+            lostCount.addAndGet(remaining);
+            queue.clear();
+        }
+        logger.info("UUID异步写入已关闭: 已写入 {}, 失败批次 {}, 退回同步写入 {}, 未写入 {}",
+            flushedCount.get(), failedBatchCount.get(), rejectedCount.get(), lostCount.get());
+    }
+}
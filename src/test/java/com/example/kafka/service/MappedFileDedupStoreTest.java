@@ -0,0 +1,144 @@
+package com.example.kafka.service;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.UUID;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class MappedFileDedupStoreTest {
+
+    private static final int EXPIRE_SECONDS = 600;
+    private static final int LEASE_SECONDS = 30;
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private File directory;
+    private MappedFileDedupStore store;
+
+    @Before
+    public void setUp() throws IOException {
+        directory = folder.newFolder("dedup");
+        store = open(3600, EXPIRE_SECONDS);
+    }
+
+    @After
+    public void tearDown() {
+        if (store != null) {
+            store.close();
+        }
+    }
+
+    private MappedFileDedupStore open(long partitionSeconds, int expireSeconds) {
+        return new MappedFileDedupStore(directory, partitionSeconds, 1024, expireSeconds, LEASE_SECONDS, 0);
+    }
+
+    private MappedFileDedupStore reopen() {
+        store.close();
+        store = open(3600, EXPIRE_SECONDS);
+        return store;
+    }
+
+    @Test
+    public void savedAndReservedUuidsSurviveRestart() {
+        String saved = UUID.randomUUID().toString();
+        String reserved = UUID.randomUUID().toString();
+        assertTrue(store.reserveUuid(saved));
+        assertTrue(store.saveUuid(saved));
+        assertTrue(store.reserveUuid(reserved));
+
+        reopen();
+
+        assertTrue(store.isUuidExists(saved));
+        assertTrue(store.isUuidExists(reserved));
+        assertFalse(store.reserveUuid(saved));
+        assertFalse(store.reserveUuid(reserved));
+        assertFalse(store.isUuidExists(UUID.randomUUID().toString()));
+    }
+
+    @Test
+    public void fullSegmentsRollOverAndAllSurviveRestart() {
+        // 1024槽、装载率0.75，2000个UUID需要多个段
+        for (int i = 0; i < 2000; i++) {
+            store.saveUuid("message-" + i);
+        }
+        assertTrue(store.getSegmentCount() > 1);
+        int segments = store.getSegmentCount();
+
+        reopen();
+
+        assertEquals(segments, store.getSegmentCount());
+        for (int i = 0; i < 2000; i++) {
+            assertTrue("message-" + i, store.isUuidExists("message-" + i));
+        }
+    }
+
+    @Test
+    public void releaseTombstonesEntryAndAllowsReserveAgain() {
+        String uuid = UUID.randomUUID().toString();
+        assertTrue(store.reserveUuid(uuid));
+        assertTrue(store.releaseUuid(uuid));
+        assertFalse(store.isUuidExists(uuid));
+        assertFalse(store.releaseUuid(uuid));
+
+        reopen();
+
+        // 墓碑已持久化
+        assertFalse(store.isUuidExists(uuid));
+        long occupied = store.getOccupiedSlots();
+        assertTrue(store.reserveUuid(uuid));
+        assertTrue(store.isUuidExists(uuid));
+        // 重新预占复用原槽位
+        assertEquals(occupied, store.getOccupiedSlots());
+    }
+
+    @Test
+    public void deleteRemovesSavedUuid() {
+        String uuid = UUID.randomUUID().toString();
+        store.saveUuid(uuid);
+        assertTrue(store.deleteUuid(uuid));
+        assertFalse(store.isUuidExists(uuid));
+    }
+
+    @Test
+    public void expiredSegmentFilesAreDeletedOnRestart() throws IOException {
+        store.saveUuid(UUID.randomUUID().toString());
+        store.close();
+        File[] files = directory.listFiles();
+        assertEquals(1, files.length);
+        // 分区起始时间远早于去重窗口的段
+        File expired = new File(directory, "segment-1000-0.idx");
+        Files.copy(files[0].toPath(), expired.toPath());
+
+        store = open(3600, EXPIRE_SECONDS);
+
+        assertFalse(expired.exists());
+        assertTrue(files[0].exists());
+        assertEquals(1, store.getSegmentCount());
+    }
+
+    @Test
+    public void expiredSegmentsAreDroppedWhileRunning() throws InterruptedException {
+        store.close();
+        // 分区1秒、去重窗口0秒：分区结束1秒后整个段过期
+        store = open(1, 0);
+        store.saveUuid(UUID.randomUUID().toString());
+        assertEquals(1, store.getSegmentCount());
+
+        Thread.sleep(2100);
+        store.dropExpiredSegments();
+
+        assertEquals(0, store.getSegmentCount());
+        assertEquals(0, directory.listFiles().length);
+    }
+}